@@ -0,0 +1,114 @@
+package net.javaguides.springboottesting.benchmark;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.EmployeeStoreStats;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.service.EmployeeService;
+import net.javaguides.springboottesting.service.impl.InMemoryEmployeeService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 啟動不含web的Spring context, 使用獨立的embedded H2並預先寫入dataSize筆資料.
+ * 使用預設的storage及cache, 需要比較不同設定的benchmark使用EmployeeServiceState
+ */
+@State(Scope.Benchmark)
+public class EmployeeDataState {
+
+    private static final int SEED_CHUNK_SIZE = 1000;
+
+    @Param({"1000", "10000"})
+    public int dataSize;
+
+    public EmployeeService employeeService;
+    public EmployeeRepository employeeRepository;
+
+    private ConfigurableApplicationContext context;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        // command line args, so they win over application.yml
+        List<String> args = new ArrayList<>(Arrays.asList(
+                "--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        args.addAll(configuration());
+        context = new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(args.toArray(new String[0]));
+        employeeService = context.getBean(EmployeeService.class);
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        seed();
+        if (employeeService instanceof InMemoryEmployeeService) {
+            // benchmarks may query the rows the write-behind has not persisted yet
+            ((InMemoryEmployeeService) employeeService).flush(Duration.ofMinutes(1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        if (employeeService instanceof InMemoryEmployeeService) {
+            EmployeeStoreStats stats = ((InMemoryEmployeeService) employeeService).stats();
+            System.out.printf("%n%d employees in memory, %.0f bytes per employee (%d bytes total)%n",
+                    stats.getEmployees(), stats.getBytesPerEmployee(), stats.getTotalBytes());
+        }
+        context.close();
+    }
+
+    // extra command line args of the benchmarked configuration
+    protected List<String> configuration(){
+        return List.of();
+    }
+
+    public long randomId(){
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    public int randomIndex(){
+        return ThreadLocalRandom.current().nextInt(dataSize);
+    }
+
+    public static String firstName(int index){
+        return "First" + index;
+    }
+
+    public static String lastName(int index){
+        return "Last" + index;
+    }
+
+    private void seed(){
+        ids = new long[dataSize];
+        int seeded = 0;
+        while (seeded < dataSize) {
+            List<Employee> chunk = new ArrayList<>(SEED_CHUNK_SIZE);
+            for (int i = seeded; i < Math.min(dataSize, seeded + SEED_CHUNK_SIZE); i++) {
+                chunk.add(Employee.builder()
+                        .firstname(firstName(i))
+                        .lastname(lastName(i))
+                        .email("seed" + i + "@bench.local")
+                        .build());
+            }
+            for (BatchItemResult item : employeeService.saveEmployees(chunk).getItems()) {
+                ids[seeded++] = item.getId();
+            }
+        }
+    }
+}
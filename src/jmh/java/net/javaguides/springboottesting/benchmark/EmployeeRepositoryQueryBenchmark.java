@@ -0,0 +1,50 @@
+package net.javaguides.springboottesting.benchmark;
+
+import net.javaguides.springboottesting.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.javaguides.springboottesting.benchmark.EmployeeDataState.firstName;
+import static net.javaguides.springboottesting.benchmark.EmployeeDataState.lastName;
+
+/**
+ * 比較四種first/last name查詢寫法 (JPQL/native, index/named params)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeRepositoryQueryBenchmark {
+
+    @Benchmark
+    public Employee findByJPQL(EmployeeDataState state){
+        int index = state.randomIndex();
+        return state.employeeRepository.findByJPQL(firstName(index), lastName(index));
+    }
+
+    @Benchmark
+    public Employee findByJPQLNamedParams(EmployeeDataState state){
+        int index = state.randomIndex();
+        return state.employeeRepository.findByJPQLNamedParams(firstName(index), lastName(index));
+    }
+
+    @Benchmark
+    public Employee findByNativeSQL(EmployeeDataState state){
+        int index = state.randomIndex();
+        return state.employeeRepository.findByNativeSQL(firstName(index), lastName(index));
+    }
+
+    @Benchmark
+    public Employee findByNativeSQLNamedParams(EmployeeDataState state){
+        int index = state.randomIndex();
+        return state.employeeRepository.findByNativeSQLNamedParams(firstName(index), lastName(index));
+    }
+}
@@ -0,0 +1,47 @@
+package net.javaguides.springboottesting.benchmark;
+
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.model.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeServiceBenchmark {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    // every invocation inserts a new row, so the table grows during the measurement
+    @Benchmark
+    public Employee saveEmployee(EmployeeServiceState state){
+        long n = SEQUENCE.incrementAndGet();
+        return state.employeeService.saveEmployee(Employee.builder()
+                .firstname("Bench")
+                .lastname("Save" + n)
+                .email("save" + n + "-" + System.nanoTime() + "@bench.local")
+                .build());
+    }
+
+    @Benchmark
+    public Optional<Employee> getEmployeeById(EmployeeServiceState state){
+        return state.employeeService.getEmployeeById(state.randomId());
+    }
+
+    @Benchmark
+    public List<EmployeeView> getAllEmployees(EmployeeServiceState state){
+        return state.employeeService.getAllEmployees();
+    }
+}
@@ -0,0 +1,29 @@
+package net.javaguides.springboottesting.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * EmployeeDataState再加上cache及storage的組合, 只給透過EmployeeService的benchmark使用,
+ * 直接查詢repository的benchmark不受這兩個設定影響
+ */
+@State(Scope.Benchmark)
+public class EmployeeServiceState extends EmployeeDataState {
+
+    // caffeine | none
+    @Param({"none", "caffeine"})
+    public String cacheType;
+
+    // jpa | memory (the cache is not used by the in-memory storage)
+    @Param({"jpa", "memory"})
+    public String storageType;
+
+    @Override
+    protected List<String> configuration(){
+        return List.of("--employee.cache.type=" + cacheType,
+                "--employee.storage.type=" + storageType);
+    }
+}
@@ -0,0 +1,120 @@
+package net.javaguides.springboottesting.benchmark;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.wire.WireFormatConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/employees (寫出List<EmployeeView>) 與POST /api/employees/batch (讀取List<Employee>) 在各格式下的CPU時間,
+ * 使用與應用程式相同的HttpMessageConverter; 每種格式的body大小在setup時印出
+ * 執行方式: ./mvnw -Pjmh verify -Djmh.args="WireFormatBenchmark -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    private static final Type VIEW_LIST = ResolvableType.forClassWithGenerics(List.class, EmployeeView.class).getType();
+    private static final Type EMPLOYEE_LIST = ResolvableType.forClassWithGenerics(List.class,
+            net.javaguides.springboottesting.model.Employee.class).getType();
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    public String format;
+
+    @Param({"1", "1000"})
+    public int employees;
+
+    // BlackbirdModule on (as in the application) or plain reflection
+    @Param({"true", "false"})
+    public boolean blackbird;
+
+    private GenericHttpMessageConverter<Object> converter;
+    private MediaType mediaType;
+    private List<EmployeeView> views;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        converter = converter();
+        mediaType = converter.getSupportedMediaTypes().get(0);
+        views = new ArrayList<>(employees);
+        for (int i = 0; i < employees; i++) {
+            views.add(new EmployeeView(i + 1, EmployeeDataState.firstName(i), EmployeeDataState.lastName(i),
+                    "employee" + i + "@bench.local", (long) (i % 3)));
+        }
+        body = write().getBodyAsBytes();
+        System.out.printf("%n%s, %d employees: %d bytes on the wire (%.1f per employee)%n",
+                mediaType, employees, body.length, (double) body.length / employees);
+    }
+
+    @Benchmark
+    public MockHttpOutputMessage writeEmployees() throws IOException {
+        return write();
+    }
+
+    @Benchmark
+    public Object readEmployees() throws IOException {
+        MockHttpInputMessage input = new MockHttpInputMessage(body);
+        input.getHeaders().setContentType(mediaType);
+        return converter.read(EMPLOYEE_LIST, null, input);
+    }
+
+    private MockHttpOutputMessage write() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(views, VIEW_LIST, mediaType, output);
+        return output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private GenericHttpMessageConverter<Object> converter() {
+        WireFormatConfig config = new WireFormatConfig(builder());
+        switch (format) {
+            case "json":
+                return new MappingJackson2HttpMessageConverter(builder().build());
+            case "smile":
+                return config.smileHttpMessageConverter(builder());
+            case "cbor":
+                return config.cborHttpMessageConverter(builder());
+            case "protobuf":
+                return WireFormatConfig.protobufHttpMessageConverter(builder());
+            default:
+                throw new IllegalArgumentException(format);
+        }
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        if (blackbird) {
+            builder.modulesToInstall(new BlackbirdModule());
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,80 @@
+package net.javaguides.springboottesting.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * 以Caffeine(W-TinyLFU)實作, byId存放資料, byEmail只存email對應的id,
+ * 因此只要evict id, 舊email的對應也會一併失效
+ */
+public class CaffeineEmployeeCache implements EmployeeCache {
+
+    private final Cache<Long, Employee> byId;
+    private final Cache<String, Long> byEmail;
+
+    public CaffeineEmployeeCache(long maximumSize, Duration expireAfterWrite){
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        this.byEmail = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    @Override
+    public Optional<Employee> getById(long id) {
+        return Optional.ofNullable(byId.getIfPresent(id)).map(CaffeineEmployeeCache::copy);
+    }
+
+    @Override
+    public Optional<Employee> getByEmail(String email) {
+        Long id = byEmail.getIfPresent(email);
+        if (id == null) {
+            return Optional.empty();
+        }
+        Optional<Employee> employee = getById(id);
+        if (employee.isEmpty() || !email.equals(employee.get().getEmail())) {
+            // the id was evicted or its email changed since the mapping was written
+            byEmail.invalidate(email);
+            return Optional.empty();
+        }
+        return employee;
+    }
+
+    @Override
+    public void put(Employee employee) {
+        byId.put(employee.getId(), copy(employee));
+        byEmail.put(employee.getEmail(), employee.getId());
+    }
+
+    @Override
+    public void evict(long id) {
+        byId.invalidate(id);
+    }
+
+    @Override
+    public EmployeeCacheStats stats() {
+        CacheStats stats = byId.stats();
+        return new EmployeeCacheStats(byId.estimatedSize(), stats.hitCount(), stats.missCount(),
+                stats.evictionCount(), stats.hitRate());
+    }
+
+    // cache.* metrics tagged cache=employees, bound by EmployeeCacheConfig
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, byId, "employees");
+    }
+
+    private static Employee copy(Employee employee){
+        return employee.toBuilder().build();
+    }
+}
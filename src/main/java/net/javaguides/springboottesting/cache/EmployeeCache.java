@@ -0,0 +1,16 @@
+package net.javaguides.springboottesting.cache;
+
+import net.javaguides.springboottesting.model.Employee;
+
+import java.util.Optional;
+
+/**
+ * 員工資料的in-process快取, 實作必須回傳複本, 呼叫端修改物件不會影響快取內容
+ */
+public interface EmployeeCache {
+    Optional<Employee> getById(long id);
+    Optional<Employee> getByEmail(String email);
+    void put(Employee employee);
+    void evict(long id);
+    EmployeeCacheStats stats();
+}
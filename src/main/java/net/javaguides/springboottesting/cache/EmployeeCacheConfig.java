@@ -0,0 +1,29 @@
+package net.javaguides.springboottesting.cache;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EmployeeCacheProperties.class)
+public class EmployeeCacheConfig {
+
+    @Bean
+    public EmployeeCache employeeCache(EmployeeCacheProperties properties){
+        if (properties.getType() == EmployeeCacheProperties.Type.NONE) {
+            return new NoOpEmployeeCache();
+        }
+        return new CaffeineEmployeeCache(properties.getMaximumSize(), properties.getExpireAfterWrite());
+    }
+
+    // the bean is declared as EmployeeCache, so the registry only finds the Caffeine metrics through this binder
+    @Bean
+    public MeterBinder employeeCacheMetrics(EmployeeCache employeeCache){
+        return registry -> {
+            if (employeeCache instanceof CaffeineEmployeeCache) {
+                ((CaffeineEmployeeCache) employeeCache).bindTo(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package net.javaguides.springboottesting.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+// GET /actuator/employeecache
+@Component
+@Endpoint(id = "employeecache")
+public class EmployeeCacheEndpoint {
+
+    private final EmployeeCache employeeCache;
+
+    public EmployeeCacheEndpoint(EmployeeCache employeeCache){
+        this.employeeCache = employeeCache;
+    }
+
+    @ReadOperation
+    public EmployeeCacheStats stats(){
+        return employeeCache.stats();
+    }
+}
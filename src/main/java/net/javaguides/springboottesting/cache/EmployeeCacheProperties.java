@@ -0,0 +1,22 @@
+package net.javaguides.springboottesting.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.cache")
+public class EmployeeCacheProperties {
+
+    public enum Type {
+        CAFFEINE,
+        NONE
+    }
+
+    private Type type = Type.CAFFEINE;
+    private long maximumSize = 10_000;
+    private Duration expireAfterWrite = Duration.ofMinutes(10);
+}
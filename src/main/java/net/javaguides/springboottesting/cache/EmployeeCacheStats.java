@@ -0,0 +1,19 @@
+package net.javaguides.springboottesting.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeCacheStats {
+
+    public static final EmployeeCacheStats EMPTY = new EmployeeCacheStats(0, 0, 0, 0, 0);
+
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private double hitRate;
+}
@@ -0,0 +1,31 @@
+package net.javaguides.springboottesting.cache;
+
+import net.javaguides.springboottesting.model.Employee;
+
+import java.util.Optional;
+
+public class NoOpEmployeeCache implements EmployeeCache {
+
+    @Override
+    public Optional<Employee> getById(long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Employee> getByEmail(String email) {
+        return Optional.empty();
+    }
+
+    @Override
+    public void put(Employee employee) {
+    }
+
+    @Override
+    public void evict(long id) {
+    }
+
+    @Override
+    public EmployeeCacheStats stats() {
+        return EmployeeCacheStats.EMPTY;
+    }
+}
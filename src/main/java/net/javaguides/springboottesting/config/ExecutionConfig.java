@@ -0,0 +1,75 @@
+package net.javaguides.springboottesting.config;
+
+import net.javaguides.springboottesting.datasource.ReadYourWrites;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+@EnableConfigurationProperties(ExecutionProperties.class)
+public class ExecutionConfig implements WebMvcConfigurer {
+
+    private ExecutionProperties properties;
+
+    public ExecutionConfig(ExecutionProperties properties){
+        this.properties = properties;
+    }
+
+    /**
+     * 非同步處理使用的executor, 有上限, 佇列滿了直接拒絕(503)而不是無限排隊
+     */
+    @Bean
+    public AsyncTaskExecutor employeeTaskExecutor(){
+        if (properties.getMode() == ExecutionProperties.Mode.VIRTUAL) {
+            TaskExecutorAdapter executor = new TaskExecutorAdapter(virtualThreadExecutor());
+            executor.setTaskDecorator(ReadYourWrites::propagate);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("employee-");
+        // writes made on the executor count for the request that submitted them
+        executor.setTaskDecorator(ReadYourWrites::propagate);
+        executor.setCorePoolSize(properties.getPoolSize());
+        executor.setMaxPoolSize(properties.getPoolSize());
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setQueueCapacity(properties.getQueueCapacity());
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "employee.execution.mode", havingValue = "virtual")
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer(){
+        ExecutorService executor = virtualThreadExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    // in async mode StreamingResponseBody / Callable handlers run on the same executor, other modes keep Spring MVC's default
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        if (properties.getMode() == ExecutionProperties.Mode.ASYNC) {
+            configurer.setTaskExecutor(employeeTaskExecutor());
+        }
+    }
+
+    // looked up reflectively so the project still compiles for Java 11
+    private static ExecutorService virtualThreadExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            throw new IllegalStateException("employee.execution.mode=virtual requires a JDK with virtual threads (21+)", e);
+        }
+    }
+}
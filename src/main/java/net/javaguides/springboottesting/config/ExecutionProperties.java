@@ -0,0 +1,25 @@
+package net.javaguides.springboottesting.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.execution")
+public class ExecutionProperties {
+
+    public enum Mode {
+        // blocking controller on Tomcat's platform thread pool
+        PLATFORM,
+        // /api/async/employees hands the service call to a bounded executor and frees the Tomcat thread
+        ASYNC,
+        // Tomcat runs every request on a virtual thread (JDK 21+)
+        VIRTUAL
+    }
+
+    private Mode mode = Mode.PLATFORM;
+    // fixed size: ThreadPoolExecutor only grows past its core size once the queue is full
+    private int poolSize = 64;
+    private int queueCapacity = 1000;
+}
@@ -0,0 +1,26 @@
+package net.javaguides.springboottesting.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.service.EmployeeIngestService;
+import net.javaguides.springboottesting.service.EmployeeService;
+import net.javaguides.springboottesting.service.impl.WriteBehindEmployeeIngestService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+@Configuration
+@ConditionalOnProperty(name = "employee.ingest.enabled", havingValue = "true")
+@EnableConfigurationProperties(IngestProperties.class)
+public class IngestConfig {
+
+    @Bean
+    public EmployeeIngestService employeeIngestService(EmployeeService employeeService, ObjectMapper objectMapper,
+                                                       IngestProperties properties) throws IOException {
+        WriteBehindEmployeeIngestService service = new WriteBehindEmployeeIngestService(employeeService, objectMapper, properties);
+        service.start();
+        return service;
+    }
+}
@@ -0,0 +1,32 @@
+package net.javaguides.springboottesting.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.ingest")
+public class IngestProperties {
+
+    // write-behind mode is opt-in, POST /api/employees keeps its synchronous 201 semantics either way
+    private boolean enabled = false;
+    // accepted but not yet committed creates, beyond this POST /api/employees/ingest answers 503
+    private int queueCapacity = 10_000;
+    // rows per group commit
+    private int flushSize = 500;
+    // longest time an accepted create waits for a group commit when the queue stays below flushSize
+    private Duration flushInterval = Duration.ofMillis(50);
+    private Path journalDir = Paths.get(System.getProperty("java.io.tmpdir"), "employee-ingest");
+    // fsync the journal before answering 202, turning it off trades crash durability for latency
+    private boolean journalSync = true;
+    // attempts for a create that keeps failing on its own, then it goes to the dead-letter file;
+    // failures because the database is unavailable are retried without limit
+    private int maxAttempts = 5;
+    // tracking ids kept for the status endpoint
+    private int statusRetention = 100_000;
+}
@@ -0,0 +1,40 @@
+package net.javaguides.springboottesting.config;
+
+import net.javaguides.springboottesting.service.EmployeeIngestService;
+import net.javaguides.springboottesting.service.impl.InMemoryEmployeeService;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationInitializer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.persistence.EntityManagerFactory;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * fast-startup profile (spring.main.lazy-initialization) 下仍在啟動時建立的bean:
+     * migration與EntityManagerFactory的錯誤在啟動時就失敗, 背景thread (journal recovery、write-back) 不等到第一個request才開始
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter eagerStartupBeans(){
+        return LazyInitializationExcludeFilter.forBeanTypes(Flyway.class, FlywayMigrationInitializer.class,
+                EntityManagerFactory.class, EmployeeIngestService.class, InMemoryEmployeeService.class);
+    }
+
+    // AppCDS training run (-Pstartup): the JVM only writes the class archive when the application exits
+    @Bean
+    @ConditionalOnProperty(name = "employee.startup.exit-on-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitOnReady(){
+        return event -> {
+            ConfigurableApplicationContext context = event.getApplicationContext();
+            System.exit(SpringApplication.exit(context));
+        };
+    }
+}
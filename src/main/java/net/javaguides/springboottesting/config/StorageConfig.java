@@ -0,0 +1,59 @@
+package net.javaguides.springboottesting.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.javaguides.springboottesting.metrics.EmployeeStoreEndpoint;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
+import net.javaguides.springboottesting.service.impl.InMemoryEmployeeService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+@ConditionalOnProperty(name = "employee.storage.type", havingValue = "memory")
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    // takes over EmployeeService injection points, EmployeeServiceImpl stays available by its concrete type
+    @Bean
+    @Primary
+    public InMemoryEmployeeService inMemoryEmployeeService(EmployeeRepository employeeRepository, EmployeeSearchIndex searchIndex,
+                                                           ApplicationEventPublisher eventPublisher,
+                                                           PlatformTransactionManager transactionManager,
+                                                           StorageProperties properties,
+                                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        InMemoryEmployeeService service = new InMemoryEmployeeService(employeeRepository, searchIndex, eventPublisher,
+                transactionManager, properties);
+        service.start();
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("employee.storage.writes.pending", service, InMemoryEmployeeService::getPendingWriteCount)
+                    .description("Writes applied in memory but not yet committed to the database")
+                    .register(registry);
+            Gauge.builder("employee.storage.writes.retrying", service, InMemoryEmployeeService::getRetryingWriteCount)
+                    .description("Writes that failed to persist and are waiting for the next retry")
+                    .register(registry);
+            FunctionCounter.builder("employee.storage.writes.failed", service, InMemoryEmployeeService::getFailedWriteCount)
+                    .description("Failed attempts to persist a write")
+                    .register(registry);
+            FunctionCounter.builder("employee.storage.writes.dead-lettered", service, InMemoryEmployeeService::getDeadLetteredWriteCount)
+                    .description("Writes given up after write-max-attempts database constraint violations")
+                    .register(registry);
+            FunctionCounter.builder("employee.storage.writes.rejected", service, InMemoryEmployeeService::getRejectedWriteCount)
+                    .description("Writes rejected because the write queue stayed full")
+                    .register(registry);
+        });
+        return service;
+    }
+
+    @Bean
+    public EmployeeStoreEndpoint employeeStoreEndpoint(InMemoryEmployeeService inMemoryEmployeeService) {
+        return new EmployeeStoreEndpoint(inMemoryEmployeeService);
+    }
+}
@@ -0,0 +1,35 @@
+package net.javaguides.springboottesting.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.storage")
+public class StorageProperties {
+
+    public enum Type {
+        // every call goes to the database (EmployeeServiceImpl)
+        JPA,
+        // whole table in memory, reads never touch the database, writes are persisted asynchronously
+        MEMORY
+    }
+
+    private Type type = Type.JPA;
+    // copy-on-write unit, a write copies about size / segments entries
+    private int segments = 256;
+    // writes accepted but not yet committed, beyond this writers wait up to writeEnqueueTimeout
+    private int writeQueueCapacity = 10_000;
+    // a write that finds the queue still full after this is rejected (503) instead of blocking other writers
+    private Duration writeEnqueueTimeout = Duration.ofMillis(100);
+    // writes per database transaction
+    private int writeBatchSize = 500;
+    // a write that fails to persist is retried with doubling delays up to this, other ids keep persisting meanwhile
+    private Duration writeRetryMaxBackoff = Duration.ofSeconds(30);
+    // attempts for a write that violates a database constraint, then it is given up (dead-lettered);
+    // other failures such as a lost connection are retried without limit
+    private int writeMaxAttempts = 10;
+}
@@ -0,0 +1,87 @@
+package net.javaguides.springboottesting.controller;
+
+import net.javaguides.springboottesting.dto.EmployeePage;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * employee.execution.mode=async時啟用, 與EmployeeController相同的CRUD,
+ * 但service呼叫交給employeeTaskExecutor執行, Tomcat thread立即釋放
+ */
+@RestController
+@RequestMapping("/api/async/employees")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "employee.execution.mode", havingValue = "async")
+public class AsyncEmployeeController {
+
+    private EmployeeService employeeService;
+
+    private AsyncTaskExecutor executor;
+
+    public AsyncEmployeeController(EmployeeService employeeService,
+                                   @Qualifier("employeeTaskExecutor") AsyncTaskExecutor executor){
+        this.employeeService = employeeService;
+        this.executor = executor;
+    }
+
+    @PostMapping
+    public CompletableFuture<ResponseEntity<Employee>> createEmployee(@RequestBody Employee employee){
+        return supply(()->new ResponseEntity<>(employeeService.saveEmployee(employee), HttpStatus.CREATED));
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<EmployeePage> getEmployeesPage(@RequestParam(name = "after", defaultValue = "0") long after,
+                                                            @RequestParam("limit") int limit){
+        int pageSize = Math.max(1, Math.min(limit, EmployeeController.MAX_PAGE_SIZE));
+        return supply(()->{
+            List<EmployeeView> employees = employeeService.getEmployeesAfter(after, pageSize);
+            Long nextAfter = employees.size() < pageSize ? null : employees.get(employees.size() - 1).getId();
+            return new EmployeePage(employees, nextAfter);
+        });
+    }
+
+    @GetMapping("{id}")
+    public CompletableFuture<ResponseEntity<Employee>> getEmployeeById(@PathVariable("id") long employeeId){
+        return supply(()->employeeService.getEmployeeById(employeeId)
+                .map(ResponseEntity::ok)
+                .orElseGet(()->ResponseEntity.notFound().build()));
+    }
+
+    @PutMapping("{id}")
+    public CompletableFuture<ResponseEntity<Employee>> updateEmployee(@PathVariable("id") long employeeId,
+                                                                      @RequestBody Employee employee){
+        return supply(()->employeeService.updateEmployee(employeeId, employee)
+                .map(ResponseEntity::ok)
+                .orElseGet(()->ResponseEntity.notFound().build()));
+    }
+
+    @DeleteMapping("{id}")
+    public CompletableFuture<ResponseEntity<Void>> deleteEmployee(@PathVariable("id") long employeeId){
+        return supply(()->employeeService.deleteEmployee(employeeId)
+                ? ResponseEntity.noContent().<Void>build()
+                : ResponseEntity.notFound().<Void>build());
+    }
+
+    // the bounded executor is full: shed load instead of queueing without limit
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException e){
+        return new ResponseEntity<>("Server is busy, please retry later.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier){
+        return CompletableFuture.supplyAsync(supplier, executor);
+    }
+}
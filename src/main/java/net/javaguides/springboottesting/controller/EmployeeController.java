@@ -1,22 +1,66 @@
 package net.javaguides.springboottesting.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.BulkDeleteResult;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeePage;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.dto.ImportResult;
 import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeExportService;
+import net.javaguides.springboottesting.service.EmployeeImportService;
 import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.websocket.server.PathParam;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/employees")
+// servlet stack only, the reactive profile serves /api/employees from a WebFlux router
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class EmployeeController {
 
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final int MAX_SEARCH_RESULTS = 100;
+
+    static final int MAX_LOOKUP_IDS = 1000;
+
+    private static final int EXPORT_GZIP_BUFFER_SIZE = 64 * 1024;
+
     private EmployeeService employeeService;
 
-    public EmployeeController(EmployeeService employeeService){
+    private EmployeeImportService employeeImportService;
+
+    private EmployeeExportService employeeExportService;
+
+    private ObjectMapper objectMapper;
+
+    public EmployeeController(EmployeeService employeeService, EmployeeImportService employeeImportService,
+                              EmployeeExportService employeeExportService, ObjectMapper objectMapper){
         this.employeeService = employeeService;
+        this.employeeImportService = employeeImportService;
+        this.employeeExportService = employeeExportService;
+        this.objectMapper = objectMapper;
     }
 
     @PostMapping
@@ -25,35 +69,249 @@ public class EmployeeController {
         return employeeService.saveEmployee(employee);
     }
 
-    @GetMapping
-    public List<Employee> getAllEmployees(){
+    // bulk create, answers 201 when every item was created and 207 with the per-item report otherwise
+    @PostMapping("batch")
+    public ResponseEntity<BatchResult> createEmployees(@RequestBody List<Employee> employees){
+        BatchResult result = employeeService.saveEmployees(employees);
+        HttpStatus status = result.getFailed() == 0 ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS;
+        return new ResponseEntity<>(result, status);
+    }
+
+    // streaming import, the body is parsed line by line and written in chunk-sized transactions
+    @PostMapping(path = "import", consumes = "text/csv")
+    public ImportResult importEmployeesFromCsv(InputStream body){
+        return employeeImportService.importCsv(body);
+    }
+
+    @PostMapping(path = "import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResult importEmployeesFromNdjson(InputStream body){
+        return employeeImportService.importNdjson(body);
+    }
+
+    // GET /api/employees/export?format=csv|ndjson&gzip=true, rows go from a JDBC cursor straight to the response
+    @GetMapping("export")
+    public ResponseEntity<StreamingResponseBody> exportEmployees(@RequestParam(name = "format", defaultValue = "csv") String format,
+                                                                 @RequestParam(name = "gzip", defaultValue = "false") boolean gzip){
+        EmployeeExportService.Format exportFormat;
+        try {
+            exportFormat = EmployeeExportService.Format.valueOf(format.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream, EXPORT_GZIP_BUFFER_SIZE);
+                employeeExportService.exportEmployees(exportFormat, gzipStream);
+                gzipStream.finish();
+            } else {
+                employeeExportService.exportEmployees(exportFormat, outputStream);
+            }
+        };
+        String filename = "employees." + exportFormat.name().toLowerCase(Locale.ROOT) + (gzip ? ".gz" : "");
+        MediaType mediaType = gzip ? MediaType.parseMediaType("application/gzip")
+                : exportFormat == EmployeeExportService.Format.CSV ? MediaType.parseMediaType("text/csv")
+                : MediaType.APPLICATION_NDJSON;
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
+    // limit, stream=true, ids and email select different GET handlers and exclude each other,
+    // a request combining them matches no handler and is answered with 400 instead of an ambiguous mapping
+    @GetMapping(params = {"!limit", "stream!=true", "!ids", "!email"})
+    public List<EmployeeView> getAllEmployees(){
         return employeeService.getAllEmployees();
     }
 
-    @GetMapping("{id}")
-    public ResponseEntity<Employee> getEmployeesById(@PathVariable("id") long employeeId){
-        return employeeService.getEmployeeById(employeeId)
+    // keyset pagination: GET /api/employees?after={last id of previous page}&limit={page size}
+    @GetMapping(params = {"limit", "stream!=true", "!ids", "!email"})
+    public EmployeePage getEmployeesPage(@RequestParam(name = "after", defaultValue = "0") long after,
+                                         @RequestParam("limit") int limit){
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<EmployeeView> employees = employeeService.getEmployeesAfter(after, pageSize);
+        Long nextAfter = employees.size() < pageSize ? null : employees.get(employees.size() - 1).getId();
+        return new EmployeePage(employees, nextAfter);
+    }
+
+    // streams one JSON document per line straight from the database cursor
+    @GetMapping(params = {"!limit", "stream!=true", "!ids", "!email"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamEmployeesAsNdjson(){
+        return streamEmployees(MediaType.APPLICATION_NDJSON, false);
+    }
+
+    // same cursor as above, written as a single JSON array
+    @GetMapping(params = {"!limit", "stream=true", "!ids", "!email"})
+    public ResponseEntity<StreamingResponseBody> streamEmployeesAsJsonArray(){
+        return streamEmployees(MediaType.APPLICATION_JSON, true);
+    }
+
+    // type-ahead search over firstname/lastname/email, every term matches as a prefix
+    @GetMapping("search")
+    public List<Employee> searchEmployees(@RequestParam("q") String query,
+                                          @RequestParam(name = "limit", defaultValue = "10") int limit){
+        return employeeService.searchEmployees(query, Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS)));
+    }
+
+    // multi-get: GET /api/employees?ids=3,1,2 answers in the requested order and lists missing ids
+    @GetMapping(params = {"!limit", "stream!=true", "ids", "!email"})
+    public ResponseEntity<EmployeeLookupResult> getEmployeesByIds(@RequestParam("ids") List<Long> ids){
+        return lookupEmployees(ids);
+    }
+
+    // same lookup with the ids as a JSON array body, for id lists that do not fit in a URL
+    @PostMapping("lookup")
+    public ResponseEntity<EmployeeLookupResult> lookupEmployeesByIds(@RequestBody List<Long> ids){
+        return lookupEmployees(ids);
+    }
+
+    @GetMapping(params = {"!limit", "stream!=true", "!ids", "email"})
+    public ResponseEntity<Employee> getEmployeeByEmail(@RequestParam("email") String email){
+        return employeeService.getEmployeeByEmail(email)
                 .map(ResponseEntity::ok)
                 .orElseGet(()->ResponseEntity.notFound().build());
     }
 
+    // ETag is the entity version; a matching If-None-Match answers 304 without writing the body
+    @GetMapping("{id}")
+    public ResponseEntity<Employee> getEmployeesById(@PathVariable("id") long employeeId, WebRequest request){
+        Optional<Employee> employee = employeeService.getEmployeeById(employeeId);
+        if (employee.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(employee.get());
+        if (etag != null && request.checkNotModified(etag)) {
+            return null;
+        }
+        return withETag(employee.get());
+    }
+
+    // If-Match makes the update conditional on the version, a stale ETag answers 412
     @PutMapping("{id}")
     public ResponseEntity<Employee> updateEmployee(@PathVariable("id") long employeeId ,
+                                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
                                                    @RequestBody Employee employee){
-        return employeeService.getEmployeeById(employeeId)
-                .map(savedEmployee->{
-                    savedEmployee.setFirstname(employee.getFirstname());
-                    savedEmployee.setLastname(employee.getLastname());
-                    savedEmployee.setEmail(employee.getEmail());
-                    Employee updatedEmployee = employeeService.updateEmployee(savedEmployee);
-                    return new ResponseEntity<>(updatedEmployee,HttpStatus.OK);
-                })
+        Optional<Employee> updated;
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            updated = employeeService.updateEmployee(employeeId, employee);
+        } else {
+            Long expectedVersion = parseVersion(ifMatch);
+            if (expectedVersion == null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            updated = employeeService.updateEmployee(employeeId, employee, expectedVersion);
+        }
+        return updated
+                .map(EmployeeController::withETag)
                 .orElseGet(()->ResponseEntity.notFound().build());
     }
 
+    // partial update, only the fields present in the body are written; the ETag carries the new version
+    @PatchMapping("{id}")
+    public ResponseEntity<Void> patchEmployee(@PathVariable("id") long employeeId ,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @RequestBody Employee employee){
+        Optional<Employee> patched;
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            patched = employeeService.patchEmployee(employeeId, employee);
+        } else {
+            Long expectedVersion = parseVersion(ifMatch);
+            if (expectedVersion == null) {
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            patched = employeeService.patchEmployee(employeeId, employee, expectedVersion);
+        }
+        if (patched.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = etag(patched.get());
+        return etag == null ? ResponseEntity.noContent().build() : ResponseEntity.noContent().eTag(etag).build();
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Void> handleVersionConflict(){
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+    }
+
+    // in-memory storage: the write-behind queue stayed full for employee.storage.write-enqueue-timeout
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Too many pending writes, please retry later.");
+    }
+
     @DeleteMapping("{id}")
-    public ResponseEntity<String> deleteEmployee(@PathVariable("id") long employeeId){
-        employeeService.deleteEmployee(employeeId);
-        return new ResponseEntity<String>("Employee deleted successfully!.", HttpStatus.OK);
+    public ResponseEntity<Void> deleteEmployee(@PathVariable("id") long employeeId){
+        return employeeService.deleteEmployee(employeeId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    // bulk delete: DELETE /api/employees?ids=1,2,3
+    @DeleteMapping(params = "ids")
+    public BulkDeleteResult deleteEmployees(@RequestParam("ids") List<Long> ids){
+        int deleted = employeeService.deleteEmployees(ids);
+        return new BulkDeleteResult((int) ids.stream().distinct().count(), deleted);
+    }
+
+    static String etag(Employee employee){
+        return employee.getVersion() == null ? null : "\"" + employee.getVersion() + "\"";
+    }
+
+    private static ResponseEntity<Employee> withETag(Employee employee){
+        String etag = etag(employee);
+        return etag == null ? ResponseEntity.ok(employee) : ResponseEntity.ok().eTag(etag).body(employee);
+    }
+
+    /**
+     * 取出If-Match中的版本號, 接受"3"或W/"3", 格式不符時回傳null
+     */
+    static Long parseVersion(String ifMatch){
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private ResponseEntity<EmployeeLookupResult> lookupEmployees(List<Long> ids){
+        if (ids.size() > MAX_LOOKUP_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(employeeService.getEmployeesByIds(ids));
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamEmployees(MediaType mediaType, boolean jsonArray){
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                if (jsonArray) {
+                    generator.writeStartArray();
+                }
+                employeeService.forEachEmployee(employee -> {
+                    try {
+                        generator.writeObject(employee);
+                        if (!jsonArray) {
+                            generator.writeRaw('\n');
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                if (jsonArray) {
+                    generator.writeEndArray();
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(mediaType).body(body);
     }
 }
@@ -0,0 +1,63 @@
+package net.javaguides.springboottesting.controller;
+
+import net.javaguides.springboottesting.dto.IngestStats;
+import net.javaguides.springboottesting.dto.IngestStatus;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeIngestService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * employee.ingest.enabled=true時啟用, 新增先寫journal並排入queue, 回覆202與tracking id,
+ * 之後由背景flusher分批commit, 以GET /api/employees/ingest/{trackingId}查詢結果
+ */
+@RestController
+@RequestMapping("/api/employees/ingest")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "employee.ingest.enabled", havingValue = "true")
+public class EmployeeIngestController {
+
+    private EmployeeIngestService ingestService;
+
+    public EmployeeIngestController(EmployeeIngestService ingestService){
+        this.ingestService = ingestService;
+    }
+
+    @PostMapping
+    public ResponseEntity<IngestStatus> ingestEmployee(@RequestBody Employee employee){
+        IngestStatus status = ingestService.submit(employee);
+        if (status.getState() == IngestStatus.State.FAILED) {
+            return ResponseEntity.badRequest().body(status);
+        }
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/employees/ingest/" + status.getTrackingId()))
+                .body(status);
+    }
+
+    @GetMapping("{trackingId}")
+    public ResponseEntity<IngestStatus> getIngestStatus(@PathVariable("trackingId") String trackingId){
+        return ingestService.getStatus(trackingId)
+                .map(ResponseEntity::ok)
+                .orElseGet(()->ResponseEntity.notFound().build());
+    }
+
+    @GetMapping
+    public IngestStats getIngestStats(){
+        return ingestService.stats();
+    }
+
+    // the write-behind queue is full: shed load instead of buffering without limit
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body("Server is busy, please retry later.");
+    }
+}
@@ -0,0 +1,210 @@
+package net.javaguides.springboottesting.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.event.EmployeeChangeFeed;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Server-sent events: 每筆commit後的變更送出一個event (created/updated/deleted, data為EmployeeChangedEvent的JSON),
+ * 取代定時輪詢GET /api/employees. request thread開始async後即釋放, 送出由EmployeeChangeFeed的dispatcher負責;
+ * 每條連線以non-blocking ServletOutputStream寫入, client讀不動時dispatcher不會被卡住
+ */
+@RestController
+@RequestMapping("/api/employees/stream")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class EmployeeStreamController {
+
+    private EmployeeChangeFeed changeFeed;
+
+    public EmployeeStreamController(EmployeeChangeFeed changeFeed){
+        this.changeFeed = changeFeed;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamChanges(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        EventStreamWriter writer = new EventStreamWriter();
+        // subscribe before the response is committed so a full feed still answers 503
+        writer.subscription = changeFeed.subscribe(writer);
+        try {
+            response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+            AsyncContext asyncContext = request.startAsync();
+            asyncContext.setTimeout(changeFeed.getTimeout().toMillis());
+            writer.start(asyncContext, response.getOutputStream());
+        } catch (IOException | RuntimeException e) {
+            writer.subscription.cancel();
+            throw e;
+        }
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleRejected(RejectedExecutionException e){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body("Too many open change streams, please retry later.");
+    }
+
+    /**
+     * 一條SSE連線: 寫入只在isReady()時發生, 寫不完的部分由container在背景送出, 送完後onWritePossible()再resume subscription.
+     * 一批變更只write及flush一次
+     */
+    @Slf4j
+    private static final class EventStreamWriter implements EmployeeChangeFeed.Subscriber, WriteListener, AsyncListener {
+
+        private EmployeeChangeFeed.Subscription subscription;
+        private ServletOutputStream out;
+        private AsyncContext asyncContext;
+        // set once the response headers went out
+        private volatile boolean started;
+        // guarded by this
+        private boolean completed;
+
+        private void start(AsyncContext asyncContext, ServletOutputStream out){
+            synchronized (this) {
+                this.asyncContext = asyncContext;
+                this.out = out;
+                if (completed) {
+                    asyncContext.complete();
+                    return;
+                }
+            }
+            asyncContext.addListener(this);
+            out.setWriteListener(this);
+        }
+
+        @Override
+        public boolean isReady() {
+            return started && out.isReady();
+        }
+
+        // called by the container once the previous write went out, never while this lock is held by a writer
+        @Override
+        public void onWritePossible() throws IOException {
+            synchronized (this) {
+                if (completed) {
+                    return;
+                }
+                // the first call commits the headers so the client sees the stream open before any change
+                out.flush();
+                started = true;
+            }
+            if (out.isReady()) {
+                subscription.resume();
+            }
+        }
+
+        @Override
+        public void onChanges(List<EmployeeChangeFeed.Change> changes) throws IOException {
+            ByteArrayOutputStream events = new ByteArrayOutputStream(changes.size() * 256);
+            for (EmployeeChangeFeed.Change change : changes) {
+                append(events, SseEmitter.event()
+                        .id(Long.toString(change.getSequence()))
+                        .name(change.getEvent().getType().name().toLowerCase(Locale.ROOT))
+                        .data(change.getData(), MediaType.APPLICATION_JSON)
+                        .build());
+            }
+            write(events);
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            ByteArrayOutputStream event = new ByteArrayOutputStream(16);
+            append(event, SseEmitter.event().comment("heartbeat").build());
+            write(event);
+        }
+
+        // the client missed changes or stopped reading, it reconnects and reloads the list
+        @Override
+        public void onDropped() {
+            complete();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.debug("Change stream write failed", throwable);
+            close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            subscription.cancel();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private static void append(ByteArrayOutputStream events, Set<ResponseBodyEmitter.DataWithMediaType> event){
+            for (ResponseBodyEmitter.DataWithMediaType item : event) {
+                byte[] bytes = item.getData().toString().getBytes(StandardCharsets.UTF_8);
+                events.write(bytes, 0, bytes.length);
+            }
+        }
+
+        // the feed only calls this after isReady(), the container finishes whatever the socket does not take now
+        private void write(ByteArrayOutputStream events) throws IOException {
+            synchronized (this) {
+                if (completed) {
+                    throw new IOException("Change stream closed");
+                }
+                try {
+                    events.writeTo(out);
+                    if (out.isReady()) {
+                        out.flush();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    complete();
+                    throw e;
+                }
+            }
+        }
+
+        private void close(){
+            subscription.cancel();
+            complete();
+        }
+
+        private synchronized void complete(){
+            if (completed) {
+                return;
+            }
+            completed = true;
+            if (asyncContext != null) {
+                asyncContext.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package net.javaguides.springboottesting.datasource;
+
+import java.util.function.LongConsumer;
+
+/**
+ * read-your-writes的範圍: 只有寫入的caller本身在window內讀primary, 其他caller照常讀replica.
+ * HTTP request的scope由ReadYourWritesFilter以cookie帶回client, 下一個request再帶進來;
+ * 不在request內的存取 (背景thread) 以thread為單位
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Scope> CURRENT = ThreadLocal.withInitial(() -> new Scope(0, null));
+
+    public static final class Scope {
+
+        // epoch millis, reads go to the primary until then
+        private volatile long primaryUntil;
+        // told about every write so it can travel back to the client, null for thread scopes
+        private final LongConsumer onWrite;
+
+        private Scope(long primaryUntil, LongConsumer onWrite){
+            this.primaryUntil = primaryUntil;
+            this.onWrite = onWrite;
+        }
+    }
+
+    private ReadYourWrites(){
+    }
+
+    /**
+     * 以client帶來的時間點開始一個scope, 回傳原本的scope供restore
+     */
+    public static Scope open(long primaryUntil, LongConsumer onWrite){
+        Scope previous = CURRENT.get();
+        CURRENT.set(new Scope(primaryUntil, onWrite));
+        return previous;
+    }
+
+    public static void restore(Scope previous){
+        CURRENT.set(previous);
+    }
+
+    // TaskDecorator: work handed to another thread keeps the scope of the caller that submitted it
+    public static Runnable propagate(Runnable task){
+        Scope scope = CURRENT.get();
+        return () -> {
+            Scope previous = CURRENT.get();
+            CURRENT.set(scope);
+            try {
+                task.run();
+            } finally {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    static boolean isPinnedToPrimary(){
+        return System.currentTimeMillis() < CURRENT.get().primaryUntil;
+    }
+
+    static void written(long primaryUntil){
+        Scope scope = CURRENT.get();
+        if (primaryUntil > scope.primaryUntil) {
+            scope.primaryUntil = primaryUntil;
+            if (scope.onWrite != null) {
+                scope.onWrite.accept(primaryUntil);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.javaguides.springboottesting.datasource;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * 寫入後回傳cookie, 值為讀取需留在primary直到的時間點 (epoch millis);
+ * 帶著cookie的後續request在該時間點前讀primary, 沒帶的client不受影響.
+ * cookie由client送回, 最多只延長到now + window, 已過期或遠超過window的值視為沒帶
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE_NAME = "employee-primary-until";
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window){
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ReadYourWrites.Scope previous = ReadYourWrites.open(primaryUntil(request), primaryUntil -> {
+            // the write commits before the controller writes its body, the response is still open
+            if (!response.isCommitted()) {
+                response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, Long.toString(primaryUntil))
+                        .path("/")
+                        .maxAge(window.plusSeconds(1))
+                        .httpOnly(true)
+                        .build()
+                        .toString());
+            }
+        });
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.restore(previous);
+        }
+    }
+
+    private long primaryUntil(HttpServletRequest request){
+        Cookie cookie = WebUtils.getCookie(request, COOKIE_NAME);
+        if (cookie == null) {
+            return 0;
+        }
+        long primaryUntil;
+        try {
+            primaryUntil = Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long latest = now + window.toMillis();
+        // a value we issued is at most now + window, allow the same again for clock skew between instances
+        if (primaryUntil <= now || primaryUntil - latest > window.toMillis()) {
+            return 0;
+        }
+        return Math.min(primaryUntil, latest);
+    }
+}
@@ -0,0 +1,121 @@
+package net.javaguides.springboottesting.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * readOnly transaction的connection交給replica, 其餘(寫入及沒有transaction的存取)交給primary
+ * 路由在取得實體connection時決定, 因此必須包在LazyConnectionDataSourceProxy內,
+ * 讓connection延後到transaction的readOnly旗標設定之後才取得
+ * 寫入後的window只影響寫入的caller (見ReadYourWrites), 其他caller的讀取仍交給replica
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    public static final String PRIMARY = "primary";
+
+    private final Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+    private final List<String> replicaKeys;
+    private final RoutingDataSourceProperties.Balancing balancing;
+    private final long readYourWritesMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, LongAdder> routed = new HashMap<>();
+
+    public ReplicaRoutingDataSource(HikariDataSource primary, Map<String, HikariDataSource> replicas,
+                                    RoutingDataSourceProperties.Balancing balancing, Duration readYourWritesWindow){
+        this.pools.put(PRIMARY, primary);
+        this.pools.putAll(replicas);
+        this.replicaKeys = new ArrayList<>(replicas.keySet());
+        this.balancing = balancing;
+        this.readYourWritesMillis = readYourWritesWindow.toMillis();
+        for (String key : pools.keySet()) {
+            routed.put(key, new LongAdder());
+        }
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key = route();
+        routed.get(key).increment();
+        return key;
+    }
+
+    private String route(){
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                markWrite();
+            }
+            return PRIMARY;
+        }
+        if (replicaKeys.isEmpty() || ReadYourWrites.isPinnedToPrimary()) {
+            return PRIMARY;
+        }
+        return balancing == RoutingDataSourceProperties.Balancing.LEAST_CONNECTIONS
+                ? leastConnections()
+                : replicaKeys.get(Math.floorMod(next.getAndIncrement(), replicaKeys.size()));
+    }
+
+    private String leastConnections(){
+        String best = replicaKeys.get(0);
+        int fewest = Integer.MAX_VALUE;
+        for (String key : replicaKeys) {
+            HikariPoolMXBean pool = pools.get(key).getHikariPoolMXBean();
+            // pool尚未啟動時視為0
+            int active = pool == null ? 0 : pool.getActiveConnections();
+            if (active < fewest) {
+                fewest = active;
+                best = key;
+            }
+        }
+        return best;
+    }
+
+    private void markWrite(){
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ReadYourWrites.written(System.currentTimeMillis() + readYourWritesMillis);
+            return;
+        }
+        // the window counts from the commit, not from the first statement of a long transaction;
+        // reads inside the write transaction go to the primary anyway
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ReadYourWrites.written(System.currentTimeMillis() + readYourWritesMillis);
+            }
+        });
+    }
+
+    /**
+     * 各pool被選中的次數, key為primary或replica名稱
+     */
+    public Map<String, Long> routedCounts(){
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String key : pools.keySet()) {
+            counts.put(key, routed.get(key).sum());
+        }
+        return counts;
+    }
+
+    public Map<String, HikariDataSource> pools(){
+        return new LinkedHashMap<>(pools);
+    }
+
+    @Override
+    public void destroy() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
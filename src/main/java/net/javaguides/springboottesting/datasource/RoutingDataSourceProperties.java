@@ -0,0 +1,37 @@
+package net.javaguides.springboottesting.datasource;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.datasource.routing")
+public class RoutingDataSourceProperties {
+
+    public enum Balancing {
+        ROUND_ROBIN,
+        // replica pool with the fewest active connections, ties go to the first one
+        LEAST_CONNECTIONS
+    }
+
+    @Getter
+    @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+
+    // off: spring.datasource is the only pool, exactly as before
+    private boolean enabled = false;
+    private Balancing balancing = Balancing.ROUND_ROBIN;
+    // reads of the caller that wrote stay on the primary this long after its write commits, covers replication lag
+    private Duration readYourWritesWindow = Duration.ofSeconds(1);
+    private List<Replica> replicas = new ArrayList<>();
+}
@@ -0,0 +1,30 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private Long id;
+    private String email;
+    private String error;
+
+    public static BatchItemResult created(int index, long id, String email){
+        return new BatchItemResult(index, Status.CREATED, id, email, null);
+    }
+
+    public static BatchItemResult failed(int index, String email, String error){
+        return new BatchItemResult(index, Status.FAILED, null, email, error);
+    }
+}
@@ -0,0 +1,26 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批次新增結果, items順序與request內的順序一致
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResult {
+    private int succeeded;
+    private int failed;
+    private List<BatchItemResult> items;
+
+    public static BatchResult of(List<BatchItemResult> items){
+        int succeeded = (int) items.stream()
+                .filter(item -> item.getStatus() == BatchItemResult.Status.CREATED)
+                .count();
+        return new BatchResult(succeeded, items.size() - succeeded, items);
+    }
+}
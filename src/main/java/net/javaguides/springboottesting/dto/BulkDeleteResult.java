@@ -0,0 +1,13 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkDeleteResult {
+    private int requested;
+    private int deleted;
+}
@@ -0,0 +1,19 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.util.List;
+
+/**
+ * 多筆查詢結果, content依request的id順序排列(重複的id只出現一次), missing為不存在的id
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeLookupResult {
+    private List<Employee> content;
+    private List<Long> missing;
+}
@@ -0,0 +1,18 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * keyset分頁結果, nextAfter為下一頁的after參數, 沒有下一頁時為null
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeePage {
+    private List<EmployeeView> content;
+    private Long nextAfter;
+}
@@ -0,0 +1,31 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * in-memory storage的大小與寫入狀態, bytes為估算值 (64-bit JVM, compressed oops)
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeStoreStats {
+    private int employees;
+    private long idTableBytes;
+    private long emailIndexBytes;
+    private long recordBytes;
+    private long totalBytes;
+    private double bytesPerEmployee;
+    // 已寫入記憶體但尚未commit到資料庫, 包含重試中的寫入
+    private long pendingWrites;
+    // 寫回失敗、等待重試的寫入
+    private long retryingWrites;
+    private long persistedWrites;
+    // 失敗的寫回次數
+    private long failedWrites;
+    // write queue滿而拒絕的寫入
+    private long rejectedWrites;
+    // 違反資料庫限制、重試write-max-attempts次後放棄的寫入, 記憶體與資料庫不一致直到重啟
+    private long deadLetteredWrites;
+}
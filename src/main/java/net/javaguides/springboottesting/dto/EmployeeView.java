@@ -0,0 +1,32 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import net.javaguides.springboottesting.model.Employee;
+
+/**
+ * 唯讀查詢用的projection, 由JPQL constructor expression直接建立,
+ * 不會進入persistence context也沒有dirty checking的snapshot. JSON欄位與Employee相同
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class EmployeeView {
+    private long id;
+    private String firstname;
+    private String lastname;
+    private String email;
+    private Long version;
+
+    // detached copy for callers that work with the entity type (cache, search index)
+    public Employee toEmployee(){
+        return Employee.builder()
+                .id(id)
+                .firstname(firstname)
+                .lastname(lastname)
+                .email(email)
+                .version(version)
+                .build();
+    }
+}
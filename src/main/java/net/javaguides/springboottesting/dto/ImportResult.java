@@ -0,0 +1,21 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 匯入結果, errors最多保留employee.import.max-errors筆, 超過時errorsTruncated為true
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportResult {
+    private long rows;
+    private long created;
+    private long failed;
+    private List<ImportRowError> errors;
+    private boolean errorsTruncated;
+}
@@ -0,0 +1,17 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * line為檔案中的行號(從1開始, CSV包含標題列)
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportRowError {
+    private long line;
+    private String email;
+    private String error;
+}
@@ -0,0 +1,25 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestStats {
+    // accepted but not yet committed, including a batch being retried
+    private long queued;
+    private long capacity;
+    private long accepted;
+    private long rejected;
+    private long created;
+    private long failed;
+    // gave up after employee.ingest.max-attempts, kept in the dead-letter file
+    private long deadLettered;
+    private long flushes;
+    private long replayed;
+    private long journalBytes;
+    // fsyncs of the journal, concurrent submits share one (group commit)
+    private long journalSyncs;
+}
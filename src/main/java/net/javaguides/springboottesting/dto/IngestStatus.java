@@ -0,0 +1,37 @@
+package net.javaguides.springboottesting.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * write-behind新增的處理狀態, CREATED時id為新員工的id
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class IngestStatus {
+
+    public enum State {
+        PENDING,
+        CREATED,
+        FAILED
+    }
+
+    private String trackingId;
+    private State state;
+    private Long id;
+    private String error;
+
+    public static IngestStatus pending(String trackingId){
+        return new IngestStatus(trackingId, State.PENDING, null, null);
+    }
+
+    public static IngestStatus created(String trackingId, long id){
+        return new IngestStatus(trackingId, State.CREATED, id, null);
+    }
+
+    public static IngestStatus failed(String trackingId, String error){
+        return new IngestStatus(trackingId, State.FAILED, null, error);
+    }
+}
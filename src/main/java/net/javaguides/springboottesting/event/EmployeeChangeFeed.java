@@ -0,0 +1,366 @@
+package net.javaguides.springboottesting.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * commit後的EmployeeChangedEvent轉發給所有subscriber (GET /api/employees/stream).
+ * 每個事件只序列化一次; 每個subscriber有自己的buffer, 同一個id尚未送出的變更合併為一筆,
+ * 不同id的待送變更超過buffer-size時該subscriber被中斷 (client重新連線後再以GET /api/employees取得完整資料).
+ * 送出由少數dispatcher thread輪流處理, 同一個subscriber不會同時被兩條thread處理;
+ * subscriber的連線暫時無法寫入時 (isReady()為false) 不佔用dispatcher, 變更留在buffer等它resume(),
+ * 超過send-timeout仍無法寫入即中斷該subscriber, 慢的client不會拖慢其他client
+ */
+@Slf4j
+public class EmployeeChangeFeed {
+
+    /**
+     * 在dispatcher thread上呼叫, 丟出例外表示連線已中斷, subscriber會被移除; 呼叫都不可阻塞
+     */
+    public interface Subscriber {
+
+        // false while the connection cannot take more data, the subscriber calls Subscription.resume() once it can
+        boolean isReady();
+
+        void onChanges(List<Change> changes) throws IOException;
+
+        // nothing was sent for a heartbeat interval, lets dead connections surface
+        void onHeartbeat() throws IOException;
+
+        // the buffer overflowed or the connection stayed unwritable past send-timeout, no more changes will be delivered
+        void onDropped();
+    }
+
+    @Getter
+    public static final class Change {
+        // increases with every committed change, usable as the SSE event id
+        private final long sequence;
+        private final EmployeeChangedEvent event;
+        // JSON of the event, rendered once for all subscribers
+        private final String data;
+
+        Change(long sequence, EmployeeChangedEvent event, String data){
+            this.sequence = sequence;
+            this.event = event;
+            this.data = data;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration heartbeatInterval;
+    private final Duration sendTimeout;
+    @Getter
+    private final Duration timeout;
+    private final ScheduledExecutorService dispatcher;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public EmployeeChangeFeed(ObjectMapper objectMapper, EmployeeChangeFeedProperties properties){
+        this.objectMapper = objectMapper;
+        this.bufferSize = properties.getBufferSize();
+        this.maxSubscribers = properties.getMaxSubscribers();
+        this.heartbeatInterval = properties.getHeartbeatInterval();
+        this.sendTimeout = properties.getSendTimeout();
+        this.timeout = properties.getTimeout();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "employee-stream-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.dispatcher = Executors.newScheduledThreadPool(properties.getDispatcherThreads(), threadFactory);
+    }
+
+    public void start(){
+        long interval = heartbeatInterval.toMillis();
+        if (interval > 0) {
+            dispatcher.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.MILLISECONDS);
+        }
+        long checkInterval = Math.max(1, sendTimeout.toMillis() / 4);
+        if (sendTimeout.toMillis() > 0) {
+            dispatcher.scheduleWithFixedDelay(this::disconnectStalled, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void shutdown(){
+        dispatcher.shutdownNow();
+        subscriptions.clear();
+    }
+
+    /**
+     * 超過max-subscribers時丟出RejectedExecutionException
+     */
+    public Subscription subscribe(Subscriber subscriber){
+        Subscription subscription = new Subscription(subscriber);
+        subscriptions.add(subscription);
+        if (subscriptions.size() > maxSubscribers) {
+            subscriptions.remove(subscription);
+            throw new RejectedExecutionException("Too many change feed subscribers: " + maxSubscribers);
+        }
+        return subscription;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event){
+        published.increment();
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        Change change = render(sequence.incrementAndGet(), event);
+        if (change == null) {
+            return;
+        }
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    public int getSubscriberCount(){
+        return subscriptions.size();
+    }
+
+    public long getPublishedCount(){
+        return published.sum();
+    }
+
+    public long getCoalescedCount(){
+        return coalesced.sum();
+    }
+
+    public long getDroppedCount(){
+        return dropped.sum();
+    }
+
+    public long getTimedOutCount(){
+        return timedOut.sum();
+    }
+
+    private void heartbeat(){
+        long idleSince = System.nanoTime() - heartbeatInterval.toNanos();
+        for (Subscription subscription : subscriptions) {
+            subscription.heartbeatIfIdleSince(idleSince);
+        }
+    }
+
+    private void disconnectStalled(){
+        long stalledBefore = System.nanoTime() - sendTimeout.toNanos();
+        for (Subscription subscription : subscriptions) {
+            subscription.disconnectIfStalledBefore(stalledBefore);
+        }
+    }
+
+    private Change render(long sequence, EmployeeChangedEvent event){
+        try {
+            return new Change(sequence, event, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize {} for employee {}", event.getType(), event.getId(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 合併同一個id的兩筆變更: 刪除蓋過一切, 更新只覆寫不為null的欄位 (PATCH), 建立後的更新仍是建立
+     */
+    private Change coalesce(Change previous, Change next){
+        EmployeeChangedEvent before = previous.getEvent();
+        EmployeeChangedEvent after = next.getEvent();
+        if (after.getType() != EmployeeChangedEvent.Type.UPDATED || before.getType() == EmployeeChangedEvent.Type.DELETED) {
+            return next;
+        }
+        Employee base = before.getEmployee();
+        Employee changes = after.getEmployee();
+        Employee merged = base.toBuilder()
+                .firstname(changes.getFirstname() != null ? changes.getFirstname() : base.getFirstname())
+                .lastname(changes.getLastname() != null ? changes.getLastname() : base.getLastname())
+                .email(changes.getEmail() != null ? changes.getEmail() : base.getEmail())
+                .version(changes.getVersion() != null ? changes.getVersion() : base.getVersion())
+                .build();
+        Change change = render(next.getSequence(), new EmployeeChangedEvent(before.getType(), after.getId(), merged));
+        return change != null ? change : next;
+    }
+
+    public final class Subscription {
+
+        private final Subscriber subscriber;
+        // pending changes by employee id, guarded by this
+        private final Map<Long, Change> pending = new LinkedHashMap<>();
+        private boolean scheduled;
+        private boolean heartbeatDue;
+        private volatile boolean closed;
+        private volatile long lastSent = System.nanoTime();
+        // System.nanoTime() when a delivery found the subscriber not ready, 0 while it is writable; guarded by this
+        private long stalledSince;
+
+        private Subscription(Subscriber subscriber){
+            this.subscriber = subscriber;
+        }
+
+        public void cancel(){
+            closed = true;
+            subscriptions.remove(this);
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+
+        private void offer(Change change){
+            boolean overflow = false;
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                long id = change.getEvent().getId();
+                Change previous = pending.get(id);
+                if (previous != null) {
+                    pending.put(id, coalesce(previous, change));
+                    coalesced.increment();
+                } else if (pending.size() >= bufferSize) {
+                    overflow = true;
+                } else {
+                    pending.put(id, change);
+                }
+                if (!overflow) {
+                    schedule();
+                }
+            }
+            if (overflow) {
+                drop();
+            }
+        }
+
+        /**
+         * 連線恢復可寫入時由subscriber呼叫, 送出期間累積的變更
+         */
+        public void resume(){
+            synchronized (this) {
+                stalledSince = 0;
+                if (!closed && (!pending.isEmpty() || heartbeatDue)) {
+                    schedule();
+                }
+            }
+        }
+
+        private void heartbeatIfIdleSince(long idleSince){
+            synchronized (this) {
+                if (closed || lastSent - idleSince > 0) {
+                    return;
+                }
+                heartbeatDue = true;
+                schedule();
+            }
+        }
+
+        // caller holds the lock
+        private void schedule(){
+            if (!scheduled) {
+                scheduled = true;
+                dispatch(this::deliver);
+            }
+        }
+
+        /**
+         * 一次送出目前累積的變更, 期間新到的變更重新排入dispatcher, 讓其他subscriber有機會輪到
+         */
+        private void deliver(){
+            List<Change> changes;
+            boolean heartbeat;
+            synchronized (this) {
+                if (!closed && !subscriber.isReady()) {
+                    // resume() schedules the next delivery
+                    if (stalledSince == 0) {
+                        stalledSince = System.nanoTime();
+                    }
+                    scheduled = false;
+                    return;
+                }
+                changes = new ArrayList<>(pending.values());
+                pending.clear();
+                heartbeat = heartbeatDue && changes.isEmpty();
+                heartbeatDue = false;
+            }
+            try {
+                if (!closed && !changes.isEmpty()) {
+                    subscriber.onChanges(changes);
+                } else if (!closed && heartbeat) {
+                    subscriber.onHeartbeat();
+                }
+                lastSent = System.nanoTime();
+            } catch (IOException | RuntimeException e) {
+                log.debug("Change feed subscriber disconnected", e);
+                cancel();
+            }
+            synchronized (this) {
+                scheduled = false;
+                if (!closed && (!pending.isEmpty() || heartbeatDue)) {
+                    schedule();
+                }
+            }
+        }
+
+        private void drop(){
+            if (disconnect()) {
+                dropped.increment();
+            }
+        }
+
+        private void disconnectIfStalledBefore(long stalledBefore){
+            synchronized (this) {
+                if (closed || stalledSince == 0 || stalledSince - stalledBefore > 0) {
+                    return;
+                }
+            }
+            if (disconnect()) {
+                timedOut.increment();
+            }
+        }
+
+        private boolean disconnect(){
+            closed = true;
+            if (!subscriptions.remove(this)) {
+                return false;
+            }
+            synchronized (this) {
+                pending.clear();
+            }
+            dispatch(subscriber::onDropped);
+            return true;
+        }
+
+        private void dispatch(Runnable task){
+            try {
+                dispatcher.execute(task);
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                closed = true;
+                subscriptions.remove(this);
+            }
+        }
+    }
+}
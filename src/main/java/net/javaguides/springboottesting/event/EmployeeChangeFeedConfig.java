@@ -0,0 +1,37 @@
+package net.javaguides.springboottesting.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(EmployeeChangeFeedProperties.class)
+public class EmployeeChangeFeedConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public EmployeeChangeFeed employeeChangeFeed(ObjectMapper objectMapper, EmployeeChangeFeedProperties properties,
+                                                 ObjectProvider<MeterRegistry> meterRegistry){
+        EmployeeChangeFeed feed = new EmployeeChangeFeed(objectMapper, properties);
+        feed.start();
+        meterRegistry.ifAvailable(registry -> {
+            Gauge.builder("employee.stream.subscribers", feed, EmployeeChangeFeed::getSubscriberCount)
+                    .description("Open change feed connections")
+                    .register(registry);
+            FunctionCounter.builder("employee.stream.coalesced", feed, EmployeeChangeFeed::getCoalescedCount)
+                    .description("Changes merged into an unsent change of the same employee")
+                    .register(registry);
+            FunctionCounter.builder("employee.stream.dropped", feed, EmployeeChangeFeed::getDroppedCount)
+                    .description("Subscribers disconnected because their buffer overflowed")
+                    .register(registry);
+            FunctionCounter.builder("employee.stream.timed-out", feed, EmployeeChangeFeed::getTimedOutCount)
+                    .description("Subscribers disconnected because their connection stayed unwritable past send-timeout")
+                    .register(registry);
+        });
+        return feed;
+    }
+}
@@ -0,0 +1,23 @@
+package net.javaguides.springboottesting.event;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "employee.stream")
+public class EmployeeChangeFeedProperties {
+
+    // distinct employees with unsent changes per subscriber before it is dropped
+    private int bufferSize = 256;
+    private int maxSubscribers = 10_000;
+    private int dispatcherThreads = 2;
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+    // a subscriber whose connection cannot take data for this long is disconnected
+    private Duration sendTimeout = Duration.ofSeconds(10);
+    // the client (EventSource) reconnects when the response ends
+    private Duration timeout = Duration.ofMinutes(30);
+}
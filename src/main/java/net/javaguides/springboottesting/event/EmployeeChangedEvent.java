@@ -0,0 +1,36 @@
+package net.javaguides.springboottesting.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import net.javaguides.springboottesting.model.Employee;
+
+/**
+ * EmployeeServiceImpl寫入成功後發布, UPDATED事件中為null的欄位表示沒有變更(PATCH),
+ * DELETED事件的employee為null
+ */
+@Getter
+@AllArgsConstructor
+public class EmployeeChangedEvent {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    private Type type;
+    private long id;
+    private Employee employee;
+
+    public static EmployeeChangedEvent created(Employee employee){
+        return new EmployeeChangedEvent(Type.CREATED, employee.getId(), employee.toBuilder().build());
+    }
+
+    public static EmployeeChangedEvent updated(Employee employee){
+        return new EmployeeChangedEvent(Type.UPDATED, employee.getId(), employee.toBuilder().build());
+    }
+
+    public static EmployeeChangedEvent deleted(long id){
+        return new EmployeeChangedEvent(Type.DELETED, id, null);
+    }
+}
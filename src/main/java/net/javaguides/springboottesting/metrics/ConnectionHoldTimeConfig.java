@@ -0,0 +1,50 @@
+package net.javaguides.springboottesting.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 每條connection多一層proxy, 只在排查時以employee.metrics.connection-hold-time=true開啟;
+ * 不分endpoint的佔用時間平常就有hikaricp.connections.usage
+ */
+@Configuration
+@ConditionalOnProperty(name = "employee.metrics.connection-hold-time", havingValue = "true")
+public class ConnectionHoldTimeConfig {
+
+    /**
+     * 包裝名為dataSource的bean底下實際的pool: routing時LazyConnectionDataSourceProxy在第一個statement才取得connection,
+     * 因此包裝它的target, 從pool借出時才開始計時; Spring Boot會透過DelegatingDataSource找到HikariDataSource, hikaricp.*指標不受影響
+     */
+    @Bean
+    public static BeanPostProcessor connectionHoldTimePostProcessor(ObjectProvider<MeterRegistry> meterRegistry){
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!beanName.equals("dataSource")) {
+                    return bean;
+                }
+                if (bean instanceof LazyConnectionDataSourceProxy) {
+                    LazyConnectionDataSourceProxy lazyProxy = (LazyConnectionDataSourceProxy) bean;
+                    lazyProxy.setTargetDataSource(new ConnectionHoldTimeDataSource(lazyProxy.getTargetDataSource(), meterRegistry));
+                    return lazyProxy;
+                }
+                if (bean instanceof DataSource) {
+                    return new ConnectionHoldTimeDataSource((DataSource) bean, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public ConnectionHoldTimeEndpoint connectionHoldTimeEndpoint(MeterRegistry meterRegistry){
+        return new ConnectionHoldTimeEndpoint(meterRegistry);
+    }
+}
@@ -0,0 +1,65 @@
+package net.javaguides.springboottesting.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /actuator/connectionhold
+ * 各endpoint的connection佔用時間, 依總佔用時間排序. 依Little's law,
+ * 總佔用時間除以經過時間即為平均同時佔用的connection數, 可作為pool大小的依據
+ * 由ConnectionHoldTimeConfig建立, 只在employee.metrics.connection-hold-time=true時存在
+ */
+@Endpoint(id = "connectionhold")
+public class ConnectionHoldTimeEndpoint {
+
+    @Getter
+    @AllArgsConstructor
+    public static class EndpointHoldTime {
+        private String method;
+        private String uri;
+        private long count;
+        private double meanMs;
+        private double maxMs;
+        private double totalMs;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Report {
+        private double uptimeSeconds;
+        // average number of connections checked out at any moment since startup
+        private double averageConnectionsInUse;
+        private List<EndpointHoldTime> endpoints;
+    }
+
+    private MeterRegistry meterRegistry;
+
+    public ConnectionHoldTimeEndpoint(MeterRegistry meterRegistry){
+        this.meterRegistry = meterRegistry;
+    }
+
+    @ReadOperation
+    public Report report(){
+        List<EndpointHoldTime> endpoints = new ArrayList<>();
+        double totalMs = 0;
+        for (Timer timer : meterRegistry.find(ConnectionHoldTimeDataSource.METRIC_NAME).timers()) {
+            double timerTotalMs = timer.totalTime(TimeUnit.MILLISECONDS);
+            totalMs += timerTotalMs;
+            endpoints.add(new EndpointHoldTime(timer.getId().getTag("method"), timer.getId().getTag("uri"),
+                    timer.count(), timer.mean(TimeUnit.MILLISECONDS), timer.max(TimeUnit.MILLISECONDS), timerTotalMs));
+        }
+        endpoints.sort(Comparator.comparingDouble(EndpointHoldTime::getTotalMs).reversed());
+        double uptimeSeconds = ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0;
+        return new Report(uptimeSeconds, uptimeSeconds == 0 ? 0 : totalMs / 1000.0 / uptimeSeconds, endpoints);
+    }
+}
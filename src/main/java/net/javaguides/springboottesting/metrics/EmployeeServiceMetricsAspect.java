@@ -0,0 +1,56 @@
+package net.javaguides.springboottesting.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * 為每個EmployeeService方法記錄employee.service timer,
+ * 以method/outcome/exception標籤區分, timer的count即為各結果的次數.
+ * repository查詢則由Spring Boot的spring.data.repository.invocations記錄
+ */
+@Aspect
+@Component
+public class EmployeeServiceMetricsAspect {
+
+    static final String METRIC_NAME = "employee.service";
+
+    private MeterRegistry meterRegistry;
+
+    public EmployeeServiceMetricsAspect(MeterRegistry meterRegistry){
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * net.javaguides.springboottesting.service.EmployeeService+.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ERROR";
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            outcome = isMiss(result) ? "NOT_FOUND" : "SUCCESS";
+            return result;
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(METRIC_NAME)
+                    .description("EmployeeService method latency")
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+
+    // empty Optional / false from get, update, patch and delete means the employee does not exist
+    private static boolean isMiss(Object result){
+        return (result instanceof Optional && ((Optional<?>) result).isEmpty())
+                || Boolean.FALSE.equals(result);
+    }
+}
@@ -0,0 +1,22 @@
+package net.javaguides.springboottesting.metrics;
+
+import net.javaguides.springboottesting.dto.EmployeeStoreStats;
+import net.javaguides.springboottesting.service.impl.InMemoryEmployeeService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+// GET /actuator/employeestore, registered by StorageConfig when employee.storage.type=memory
+@Endpoint(id = "employeestore")
+public class EmployeeStoreEndpoint {
+
+    private final InMemoryEmployeeService employeeService;
+
+    public EmployeeStoreEndpoint(InMemoryEmployeeService employeeService){
+        this.employeeService = employeeService;
+    }
+
+    @ReadOperation
+    public EmployeeStoreStats stats(){
+        return employeeService.stats();
+    }
+}
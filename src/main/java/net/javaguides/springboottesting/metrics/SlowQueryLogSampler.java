@@ -0,0 +1,42 @@
+package net.javaguides.springboottesting.metrics;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * logback TurboFilter, Hibernate的慢查詢log(org.hibernate.SQL_SLOW)每sampleEvery筆只放行1筆,
+ * 其餘logger不受影響. 設定見logback-spring.xml
+ */
+public class SlowQueryLogSampler extends TurboFilter {
+
+    private final AtomicLong slowQueries = new AtomicLong();
+
+    private String loggerName = "org.hibernate.SQL_SLOW";
+
+    private int sampleEvery = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!logger.getName().equals(loggerName) || sampleEvery <= 1) {
+            return FilterReply.NEUTRAL;
+        }
+        // logback asks once per isXxxEnabled() guard and once per log call, only count the latter
+        if (format == null) {
+            return FilterReply.NEUTRAL;
+        }
+        return slowQueries.getAndIncrement() % sampleEvery == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+}
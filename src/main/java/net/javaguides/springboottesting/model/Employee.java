@@ -1,6 +1,13 @@
 package net.javaguides.springboottesting.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 
@@ -8,13 +15,31 @@ import javax.persistence.*;
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 
 @Entity
-@Table(name="employees")
+// only used when the l2cache profile turns on Hibernate's second-level cache
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@DynamicUpdate // merge updates only write the columns that changed
+@Table(name="employees", indexes = {
+        @Index(name = Employee.EMAIL_UNIQUE_INDEX, columnList = "email", unique = true),
+        @Index(name = "ix_employees_last_first", columnList = "last_name, first_name")
+})
 public class Employee {
+    public static final String EMAIL_UNIQUE_INDEX = "ux_employees_email";
+    // every employees_seq value v reserves the ids [v, v + ID_ALLOCATION_SIZE), callers allocating ids themselves must use the same block
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence ids let Hibernate batch inserts, IDENTITY forces one round trip per row
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "employees_seq")
+    // pooled-lo: the sequence value is the first id of the block, no special case for the first value as with pooled
+    @GenericGenerator(name = "employees_seq", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+            @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "employees_seq"),
+            @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "" + ID_ALLOCATION_SIZE),
+            @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+    })
     private long id;
     @Column(name = "first_name", nullable = false)
     private String firstname;
@@ -22,4 +47,9 @@ public class Employee {
     private String lastname;
     @Column(nullable = false)
     private String email;
+    // optimistic lock, also the ETag of the resource; clients can read it but never set it
+    @Version
+    @Column(nullable = false)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
 }
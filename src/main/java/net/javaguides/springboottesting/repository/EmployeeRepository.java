@@ -1,19 +1,36 @@
 package net.javaguides.springboottesting.repository;
 
+import net.javaguides.springboottesting.dto.EmployeeView;
 import net.javaguides.springboottesting.model.Employee;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-public interface EmployeeRepository extends JpaRepository<Employee,Long> {
+// query methods run in read-only transactions (routable to a replica), modifying queries declare their own @Transactional
+@Transactional(readOnly = true)
+public interface EmployeeRepository extends JpaRepository<Employee,Long>, EmployeeRepositoryCustom {
     Optional<Employee> findByEmail(String email);
 
+    // set-based duplicate check for bulk inserts, callers keep the IN list to a bounded size
+    @Query("select e.email from Employee e where e.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
     // define custom query using JPQL with index params
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select e from Employee e where e.firstname = ?1 and e.lastname = ?2")
     Employee findByJPQL(String firstName, String lastName);
 
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     @Query("select e from Employee e where e.firstname =:firstName and e.lastname =:lastName")
     Employee findByJPQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
 
@@ -22,4 +39,75 @@ public interface EmployeeRepository extends JpaRepository<Employee,Long> {
 
     @Query(value="select * from Employees e where e.first_name =:firstName and e.last_name =:lastName", nativeQuery = true)
     Employee findByNativeSQLNamedParams(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // single UPDATE statement, no select/merge before it; returns the affected row count
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Employee e set e.firstname = :firstname, e.lastname = :lastname, e.email = :email,"
+            + " e.version = e.version + 1 where e.id = :id")
+    int updateById(@Param("id") long id, @Param("firstname") String firstname,
+                   @Param("lastname") String lastname, @Param("email") String email);
+
+    // compare-and-set on the version, 0 rows means the employee is missing or was changed meanwhile
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Employee e set e.firstname = :firstname, e.lastname = :lastname, e.email = :email,"
+            + " e.version = e.version + 1 where e.id = :id and e.version = :version")
+    int updateByIdAndVersion(@Param("id") long id, @Param("version") long version, @Param("firstname") String firstname,
+                             @Param("lastname") String lastname, @Param("email") String email);
+
+    // reserves the id block [value, value + Employee.ID_ALLOCATION_SIZE) of the pooled-lo sequence, always on the primary
+    @Transactional
+    @Query(value = "select next value for employees_seq", nativeQuery = true)
+    long nextSequenceValue();
+
+    // insert with an id allocated by the caller, for write-behind storage that hands out ids before the row exists
+    @Transactional
+    @Modifying
+    @Query(value = "insert into employees (id, first_name, last_name, email, version)"
+            + " values (:id, :firstname, :lastname, :email, :version)", nativeQuery = true)
+    int insertWithId(@Param("id") long id, @Param("firstname") String firstname, @Param("lastname") String lastname,
+                     @Param("email") String email, @Param("version") long version);
+
+    // direct DELETE without loading the entity first; returns the affected row count
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Employee e where e.id = :id")
+    int deleteEmployeeById(@Param("id") long id);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from Employee e where e.id in :ids")
+    int deleteEmployeesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select e.id from Employee e where e.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // read-only projections: constructor expressions bypass the persistence context entirely
+    String VIEW = "select new net.javaguides.springboottesting.dto.EmployeeView(e.id, e.firstname, e.lastname, e.email, e.version)";
+
+    @Query(VIEW + " from Employee e order by e.id")
+    List<EmployeeView> findAllViews();
+
+    @Query(VIEW + " from Employee e where e.id = :id")
+    Optional<EmployeeView> findViewById(@Param("id") long id);
+
+    // multi-get, callers keep the IN list to a bounded size
+    @Query(VIEW + " from Employee e where e.id in :ids")
+    List<EmployeeView> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query(VIEW + " from Employee e where e.email = :email")
+    Optional<EmployeeView> findViewByEmail(@Param("email") String email);
+
+    @Query(VIEW + " from Employee e where e.firstname = :firstName and e.lastname = :lastName")
+    List<EmployeeView> findViewsByName(@Param("firstName") String firstName, @Param("lastName") String lastName);
+
+    // keyset (seek) pagination: rows after the last seen id, only the page size comes from pageable
+    @Query(VIEW + " from Employee e where e.id > :after order by e.id")
+    List<EmployeeView> findPageAfter(@Param("after") long after, Pageable pageable);
+
+    // forward-only cursor over the whole table, must be consumed inside a transaction
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query(VIEW + " from Employee e order by e.id")
+    Stream<EmployeeView> streamAll();
 }
@@ -0,0 +1,18 @@
+package net.javaguides.springboottesting.repository;
+
+import net.javaguides.springboottesting.model.Employee;
+
+public interface EmployeeRepositoryCustom {
+
+    /**
+     * 只更新changes內不為null的欄位, 回傳影響筆數
+     */
+    default int patchById(long id, Employee changes) {
+        return patchById(id, changes, null);
+    }
+
+    /**
+     * expectedVersion不為null時只在version相符時更新, 版本不符與資料不存在都回傳0
+     */
+    int patchById(long id, Employee changes, Long expectedVersion);
+}
@@ -0,0 +1,62 @@
+package net.javaguides.springboottesting.repository;
+
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+public class EmployeeRepositoryImpl implements EmployeeRepositoryCustom {
+
+    private EntityManager entityManager;
+
+    public EmployeeRepositoryImpl(EntityManager entityManager){
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    @Transactional
+    public int patchById(long id, Employee changes, Long expectedVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Employee> update = cb.createCriteriaUpdate(Employee.class);
+        Root<Employee> root = update.from(Employee.class);
+
+        boolean changed = false;
+        if (changes.getFirstname() != null) {
+            update.set(root.<String>get("firstname"), changes.getFirstname());
+            changed = true;
+        }
+        if (changes.getLastname() != null) {
+            update.set(root.<String>get("lastname"), changes.getLastname());
+            changed = true;
+        }
+        if (changes.getEmail() != null) {
+            update.set(root.<String>get("email"), changes.getEmail());
+            changed = true;
+        }
+        if (!changed) {
+            // nothing to write, only report whether the row exists (with the expected version)
+            if (expectedVersion == null) {
+                return entityManager.createQuery("select count(e) from Employee e where e.id = :id", Long.class)
+                        .setParameter("id", id)
+                        .getSingleResult()
+                        .intValue();
+            }
+            return entityManager.createQuery("select count(e) from Employee e where e.id = :id and e.version = :version", Long.class)
+                    .setParameter("id", id)
+                    .setParameter("version", expectedVersion)
+                    .getSingleResult()
+                    .intValue();
+        }
+
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.where(expectedVersion == null
+                ? cb.equal(root.get("id"), id)
+                : cb.and(cb.equal(root.get("id"), id), cb.equal(root.get("version"), expectedVersion)));
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+}
@@ -0,0 +1,193 @@
+package net.javaguides.springboottesting.search;
+
+import net.javaguides.springboottesting.event.EmployeeChangedEvent;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * firstname/lastname/email的in-memory inverted index,
+ * token以排序的skip list存放, 前綴查詢就是一段subMap範圍掃描.
+ * 寫入互斥, 查詢不上鎖
+ */
+@Component
+public class EmployeeSearchIndex {
+
+    private static final int EXACT_MATCH_SCORE = 3;
+    private static final int PREFIX_MATCH_SCORE = 1;
+
+    private final ConcurrentSkipListMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<Long, Employee> documents = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmployeeChanged(EmployeeChangedEvent event){
+        switch (event.getType()) {
+            case CREATED:
+                index(event.getEmployee());
+                break;
+            case UPDATED:
+                merge(event.getEmployee());
+                break;
+            case DELETED:
+                remove(event.getId());
+                break;
+        }
+    }
+
+    public void index(Employee employee){
+        Employee document = employee.toBuilder().build();
+        synchronized (writeLock) {
+            Employee previous = documents.put(document.getId(), document);
+            if (previous != null) {
+                removePostings(previous);
+            }
+            addPostings(document);
+        }
+    }
+
+    /**
+     * 只套用不為null的欄位, 尚未建立索引的資料直接略過
+     */
+    public void merge(Employee changes){
+        synchronized (writeLock) {
+            Employee previous = documents.get(changes.getId());
+            if (previous == null) {
+                return;
+            }
+            Employee document = previous.toBuilder()
+                    .firstname(changes.getFirstname() != null ? changes.getFirstname() : previous.getFirstname())
+                    .lastname(changes.getLastname() != null ? changes.getLastname() : previous.getLastname())
+                    .email(changes.getEmail() != null ? changes.getEmail() : previous.getEmail())
+                    .build();
+            removePostings(previous);
+            documents.put(document.getId(), document);
+            addPostings(document);
+        }
+    }
+
+    public void remove(long id){
+        synchronized (writeLock) {
+            Employee previous = documents.remove(id);
+            if (previous != null) {
+                removePostings(previous);
+            }
+        }
+    }
+
+    public void clear(){
+        synchronized (writeLock) {
+            documents.clear();
+            postings.clear();
+        }
+    }
+
+    public int size(){
+        return documents.size();
+    }
+
+    /**
+     * 每個查詢字詞都必須是某個token的前綴(AND), 完全相同的token分數較高,
+     * 依分數由高到低, 同分依id排序
+     */
+    public List<Employee> search(String query, int limit){
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = null;
+        for (String term : terms) {
+            Map<Long, Integer> termScores = new HashMap<>();
+            for (Map.Entry<String, Set<Long>> posting : postings.subMap(term, true, term + Character.MAX_VALUE, true).entrySet()) {
+                int score = posting.getKey().equals(term) ? EXACT_MATCH_SCORE : PREFIX_MATCH_SCORE;
+                for (Long id : posting.getValue()) {
+                    termScores.merge(id, score, Math::max);
+                }
+            }
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+                    entry.setValue(entry.getValue() + termScores.get(entry.getKey()));
+                }
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        Comparator<Map.Entry<Long, Integer>> ranking = Map.Entry.<Long, Integer>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(limit + 1, ranking);
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        List<Employee> results = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Employee document = documents.get(top.poll().getKey());
+            if (document != null) {
+                results.add(document.toBuilder().build());
+            }
+        }
+        Collections.reverse(results);
+        return results;
+    }
+
+    private void addPostings(Employee document){
+        for (String token : tokens(document)) {
+            postings.computeIfAbsent(token, key -> ConcurrentHashMap.newKeySet()).add(document.getId());
+        }
+    }
+
+    private void removePostings(Employee document){
+        for (String token : tokens(document)) {
+            postings.computeIfPresent(token, (key, ids) -> {
+                ids.remove(document.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static Set<String> tokens(Employee document){
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.addAll(tokenize(document.getFirstname()));
+        tokens.addAll(tokenize(document.getLastname()));
+        if (document.getEmail() != null) {
+            // the whole address as well, so "ives@goo" still matches as a prefix
+            tokens.add(document.getEmail().toLowerCase());
+            tokens.addAll(tokenize(document.getEmail()));
+        }
+        return tokens;
+    }
+
+    static Set<String> tokenize(String text){
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,31 @@
+package net.javaguides.springboottesting.search;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 啟動後以cursor讀取全部資料建立索引, 之後由EmployeeChangedEvent增量更新
+ */
+@Slf4j
+@Component
+public class EmployeeSearchIndexLoader {
+
+    private EmployeeService employeeService;
+
+    private EmployeeSearchIndex searchIndex;
+
+    public EmployeeSearchIndexLoader(EmployeeService employeeService, EmployeeSearchIndex searchIndex){
+        this.employeeService = employeeService;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load(){
+        long start = System.nanoTime();
+        employeeService.forEachEmployee(view -> searchIndex.index(view.toEmployee()));
+        log.info("Indexed {} employees for search in {} ms", searchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
@@ -0,0 +1,16 @@
+package net.javaguides.springboottesting.service;
+
+import java.io.OutputStream;
+
+public interface EmployeeExportService {
+
+    enum Format {
+        CSV,
+        NDJSON
+    }
+
+    /**
+     * @return 匯出的筆數
+     */
+    long exportEmployees(Format format, OutputStream output);
+}
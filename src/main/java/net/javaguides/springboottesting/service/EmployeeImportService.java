@@ -0,0 +1,10 @@
+package net.javaguides.springboottesting.service;
+
+import net.javaguides.springboottesting.dto.ImportResult;
+
+import java.io.InputStream;
+
+public interface EmployeeImportService {
+    ImportResult importCsv(InputStream input);
+    ImportResult importNdjson(InputStream input);
+}
@@ -0,0 +1,14 @@
+package net.javaguides.springboottesting.service;
+
+import net.javaguides.springboottesting.dto.IngestStats;
+import net.javaguides.springboottesting.dto.IngestStatus;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.util.Optional;
+
+public interface EmployeeIngestService {
+    // journals and queues the create, FAILED when validation rejects it, RejectedExecutionException when the queue is full
+    IngestStatus submit(Employee employee);
+    Optional<IngestStatus> getStatus(String trackingId);
+    IngestStats stats();
+}
@@ -1,14 +1,30 @@
 package net.javaguides.springboottesting.service;
 
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeeView;
 import net.javaguides.springboottesting.model.Employee;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface EmployeeService {
     Employee saveEmployee(Employee employee);
-    List<Employee> getAllEmployees();
+    BatchResult saveEmployees(List<Employee> employees);
+    List<EmployeeView> getAllEmployees();
+    List<EmployeeView> getEmployeesAfter(long afterId, int limit);
+    void forEachEmployee(Consumer<EmployeeView> action);
+    List<Employee> searchEmployees(String query, int limit);
     Optional<Employee> getEmployeeById(long id);
+    EmployeeLookupResult getEmployeesByIds(Collection<Long> ids);
+    Optional<Employee> getEmployeeByEmail(String email);
     Employee updateEmployee(Employee employee);
-    void deleteEmployee(long id);
+    Optional<Employee> updateEmployee(long id, Employee employee);
+    Optional<Employee> updateEmployee(long id, Employee employee, Long expectedVersion);
+    Optional<Employee> patchEmployee(long id, Employee changes);
+    Optional<Employee> patchEmployee(long id, Employee changes, Long expectedVersion);
+    boolean deleteEmployee(long id);
+    int deleteEmployees(Collection<Long> ids);
 }
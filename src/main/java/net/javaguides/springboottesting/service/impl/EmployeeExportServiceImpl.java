@@ -0,0 +1,129 @@
+package net.javaguides.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.service.EmployeeExportService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 以JDBC forward-only cursor讀取employees, 每一列直接寫到output stream,
+ * 不建立entity也不累積結果, heap用量與資料筆數無關
+ */
+@Service
+public class EmployeeExportServiceImpl implements EmployeeExportService {
+
+    static final String EXPORT_SQL = "select id, first_name, last_name, email from employees order by id";
+
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private ObjectMapper objectMapper;
+
+    @Value("${employee.export.fetch-size:1000}")
+    private int fetchSize = 1000;
+
+    public EmployeeExportServiceImpl(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper){
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 需要在transaction中執行, 部分driver(例如PostgreSQL)只有在autocommit關閉時才會依fetchSize分批讀取
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportEmployees(Format format, OutputStream output) {
+        try {
+            return format == Format.CSV ? exportCsv(output) : exportNdjson(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long exportCsv(OutputStream output) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+        // same header the import endpoint reads, so an export can be imported again
+        writer.write("id,firstname,lastname,email\n");
+        long rows = query(resultSet -> {
+            writer.write(Long.toString(resultSet.getLong(1)));
+            for (int column = 2; column <= 4; column++) {
+                writer.write(',');
+                writeCsvField(writer, resultSet.getString(column));
+            }
+            writer.write('\n');
+        });
+        writer.flush();
+        return rows;
+    }
+
+    private long exportNdjson(OutputStream output) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            return query(resultSet -> {
+                generator.writeStartObject();
+                generator.writeNumberField("id", resultSet.getLong(1));
+                generator.writeStringField("firstname", resultSet.getString(2));
+                generator.writeStringField("lastname", resultSet.getString(3));
+                generator.writeStringField("email", resultSet.getString(4));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private long query(RowWriter rowWriter) {
+        long[] rows = {0};
+        RowCallbackHandler handler = resultSet -> {
+            try {
+                rowWriter.write(resultSet);
+            } catch (IOException e) {
+                // client went away, stop reading the cursor
+                throw new UncheckedIOException(e);
+            }
+            rows[0]++;
+        };
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            return statement;
+        }, handler);
+        return rows[0];
+    }
+
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet resultSet) throws SQLException, IOException;
+    }
+}
@@ -0,0 +1,114 @@
+package net.javaguides.springboottesting.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.ImportResult;
+import net.javaguides.springboottesting.dto.ImportRowError;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeImportService;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 邊讀邊寫的匯入流程: 每累積chunkSize筆就交給EmployeeService.saveEmployees,
+ * 一個chunk一個transaction(重複email檢查與batch insert都在裡面), 記憶體只保留一個chunk
+ */
+@Slf4j
+@Service
+public class EmployeeImportServiceImpl implements EmployeeImportService {
+
+    private EmployeeService employeeService;
+
+    private ObjectMapper objectMapper;
+
+    @Value("${employee.import.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    @Value("${employee.import.max-errors:100}")
+    private int maxErrors = 100;
+
+    public EmployeeImportServiceImpl(EmployeeService employeeService, ObjectMapper objectMapper){
+        this.employeeService = employeeService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ImportResult importCsv(InputStream input) {
+        return importRows(EmployeeRowReader.csv(new InputStreamReader(input, StandardCharsets.UTF_8)));
+    }
+
+    @Override
+    public ImportResult importNdjson(InputStream input) {
+        return importRows(EmployeeRowReader.ndjson(new InputStreamReader(input, StandardCharsets.UTF_8), objectMapper));
+    }
+
+    private ImportResult importRows(EmployeeRowReader reader) {
+        Progress progress = new Progress();
+        List<Employee> chunk = new ArrayList<>(chunkSize);
+        List<Long> chunkLines = new ArrayList<>(chunkSize);
+        try (reader) {
+            for (EmployeeRowReader.Row row = reader.next(); row != null; row = reader.next()) {
+                progress.rows++;
+                if (row.error != null) {
+                    progress.fail(row.line, null, row.error);
+                    continue;
+                }
+                chunk.add(row.employee);
+                chunkLines.add(row.line);
+                if (chunk.size() == chunkSize) {
+                    saveChunk(chunk, chunkLines, progress);
+                }
+            }
+            saveChunk(chunk, chunkLines, progress);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Employee import finished: {} rows, {} created, {} failed",
+                progress.rows, progress.created, progress.failed);
+        return new ImportResult(progress.rows, progress.created, progress.failed,
+                progress.errors, progress.failed > progress.errors.size());
+    }
+
+    private void saveChunk(List<Employee> chunk, List<Long> chunkLines, Progress progress) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        BatchResult result = employeeService.saveEmployees(chunk);
+        for (BatchItemResult item : result.getItems()) {
+            if (item.getStatus() == BatchItemResult.Status.CREATED) {
+                progress.created++;
+            } else {
+                progress.fail(chunkLines.get(item.getIndex()), item.getEmail(), item.getError());
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+        log.info("Employee import progress: {} rows, {} created, {} failed",
+                progress.rows, progress.created, progress.failed);
+    }
+
+    private final class Progress {
+        long rows;
+        long created;
+        long failed;
+        final List<ImportRowError> errors = new ArrayList<>();
+
+        void fail(long line, String email, String error) {
+            failed++;
+            if (errors.size() < maxErrors) {
+                errors.add(new ImportRowError(line, email, error));
+            }
+        }
+    }
+}
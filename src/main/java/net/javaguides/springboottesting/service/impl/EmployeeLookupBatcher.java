@@ -0,0 +1,133 @@
+package net.javaguides.springboottesting.service.impl;
+
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把batchWindow時間內到達的id查詢合併成一次IN查詢, batchWindow為0時關閉(isEnabled()回傳false).
+ * 開啟後每次cache miss最多多等batchWindow, 適合大量併發讀取的情境
+ */
+@Component
+public class EmployeeLookupBatcher implements DisposableBean {
+
+    private static final class Request {
+        final long id;
+        final CompletableFuture<Optional<EmployeeView>> result = new CompletableFuture<>();
+
+        Request(long id) {
+            this.id = id;
+        }
+    }
+
+    private final ConcurrentLinkedQueue<Request> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private volatile boolean closed;
+
+    private EmployeeRepository employeeRepository;
+
+    private long batchWindowNanos;
+
+    private ScheduledExecutorService scheduler;
+
+    public EmployeeLookupBatcher(EmployeeRepository employeeRepository,
+                                 @Value("${employee.lookup.batch-window:0ms}") Duration batchWindow){
+        this.employeeRepository = employeeRepository;
+        this.batchWindowNanos = batchWindow.toNanos();
+        if (isEnabled()) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "employee-lookup-batcher");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public boolean isEnabled(){
+        return batchWindowNanos > 0;
+    }
+
+    public CompletableFuture<Optional<EmployeeView>> load(long id){
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(employeeRepository.findViewById(id));
+        }
+        Request request = new Request(id);
+        pending.add(request);
+        if (closed) {
+            // destroy() may already have drained the queue
+            failPending();
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.schedule(this::flush, batchWindowNanos, TimeUnit.NANOSECONDS);
+            } catch (RejectedExecutionException e) {
+                failPending();
+            }
+        }
+        return request.result;
+    }
+
+    void flush(){
+        // reset before draining: a request queued after this point schedules the next flush itself
+        flushScheduled.set(false);
+        Map<Long, List<Request>> batch = new LinkedHashMap<>();
+        for (Request request = pending.poll(); request != null; request = pending.poll()) {
+            batch.computeIfAbsent(request.id, id -> new ArrayList<>()).add(request);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = new ArrayList<>(batch.keySet());
+        try {
+            for (int from = 0; from < ids.size(); from += EmployeeServiceImpl.IN_CLAUSE_CHUNK_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + EmployeeServiceImpl.IN_CLAUSE_CHUNK_SIZE));
+                for (EmployeeView view : employeeRepository.findViewsByIds(chunk)) {
+                    List<Request> requests = batch.remove(view.getId());
+                    if (requests != null) {
+                        requests.forEach(request -> request.result.complete(Optional.of(view)));
+                    }
+                }
+            }
+            batch.values().forEach(requests -> requests.forEach(request -> request.result.complete(Optional.empty())));
+        } catch (RuntimeException e) {
+            batch.values().forEach(requests -> requests.forEach(request -> request.result.completeExceptionally(e)));
+        }
+    }
+
+    /**
+     * 尚未查詢的request以例外結束, 呼叫端不會在shutdown時永遠等待
+     */
+    @Override
+    public void destroy() {
+        closed = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        failPending();
+    }
+
+    private void failPending(){
+        IllegalStateException shutdown = new IllegalStateException("Employee lookup batcher is shut down");
+        for (Request request = pending.poll(); request != null; request = pending.poll()) {
+            request.result.completeExceptionally(shutdown);
+        }
+    }
+}
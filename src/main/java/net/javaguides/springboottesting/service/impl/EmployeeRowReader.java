@@ -0,0 +1,183 @@
+package net.javaguides.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 逐行讀取匯入檔, 一次只保留一行在記憶體中. 無法解析的行回傳帶有error的Row, 不中斷整個匯入
+ */
+abstract class EmployeeRowReader implements Closeable {
+
+    static final class Row {
+        final long line;
+        final Employee employee;
+        final String error;
+
+        Row(long line, Employee employee, String error) {
+            this.line = line;
+            this.employee = employee;
+            this.error = error;
+        }
+    }
+
+    private final BufferedReader reader;
+
+    private long line;
+
+    private boolean aborted;
+
+    EmployeeRowReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    static EmployeeRowReader csv(Reader reader) {
+        return new Csv(reader);
+    }
+
+    static EmployeeRowReader ndjson(Reader reader, ObjectMapper objectMapper) {
+        return new Ndjson(reader, objectMapper);
+    }
+
+    /**
+     * @return 下一筆資料, 檔案結束時回傳null. 空白行與CSV標題列會被略過
+     */
+    Row next() throws IOException {
+        String text;
+        while (!aborted && (text = reader.readLine()) != null) {
+            line++;
+            Row row = text.isBlank() ? null : parse(line, text);
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 解析結果, 不是資料的行(例如標題列)回傳null
+     */
+    abstract Row parse(long line, String text);
+
+    // the rest of the input cannot be interpreted, next() reports end of input from now on
+    void abort() {
+        aborted = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 第一個非空白行為標題列, 欄位順序不限, first_name/firstname皆可.
+     * 支援以雙引號包住含逗號的欄位, 不支援跨行的欄位
+     */
+    static final class Csv extends EmployeeRowReader {
+
+        private int firstnameColumn = -1;
+        private int lastnameColumn = -1;
+        private int emailColumn = -1;
+
+        Csv(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        Row parse(long line, String text) {
+            List<String> fields = split(text);
+            if (emailColumn < 0) {
+                if (readHeader(fields)) {
+                    return null;
+                }
+                abort();
+                return new Row(line, null, "CSV header must contain firstname, lastname and email columns");
+            }
+            int required = Math.max(emailColumn, Math.max(firstnameColumn, lastnameColumn)) + 1;
+            if (fields == null || fields.size() < required) {
+                return new Row(line, null, "Malformed CSV row");
+            }
+            return new Row(line, Employee.builder()
+                    .firstname(fields.get(firstnameColumn))
+                    .lastname(fields.get(lastnameColumn))
+                    .email(fields.get(emailColumn))
+                    .build(), null);
+        }
+
+        private boolean readHeader(List<String> fields) {
+            for (int i = 0; fields != null && i < fields.size(); i++) {
+                // Excel exports start with a UTF-8 byte order mark
+                String column = fields.get(i).replace("\uFEFF", "").toLowerCase(Locale.ROOT).replace("_", "");
+                if (column.equals("firstname")) {
+                    firstnameColumn = i;
+                } else if (column.equals("lastname")) {
+                    lastnameColumn = i;
+                } else if (column.equals("email")) {
+                    emailColumn = i;
+                }
+            }
+            return firstnameColumn >= 0 && lastnameColumn >= 0 && emailColumn >= 0;
+        }
+
+        /**
+         * @return 欄位(已去除前後空白), 引號未閉合時回傳null
+         */
+        static List<String> split(String text) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString().trim());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                return null;
+            }
+            fields.add(field.toString().trim());
+            return fields;
+        }
+    }
+
+    static final class Ndjson extends EmployeeRowReader {
+
+        private final ObjectMapper objectMapper;
+
+        Ndjson(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        Row parse(long line, String text) {
+            try {
+                return new Row(line, objectMapper.readValue(text, Employee.class), null);
+            } catch (JsonProcessingException e) {
+                return new Row(line, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+}
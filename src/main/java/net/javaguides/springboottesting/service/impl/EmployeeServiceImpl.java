@@ -1,56 +1,475 @@
 package net.javaguides.springboottesting.service.impl;
 
+import net.javaguides.springboottesting.cache.EmployeeCache;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.event.EmployeeChangedEvent;
 import net.javaguides.springboottesting.exception.ResourceNotFoundException;
 import net.javaguides.springboottesting.model.Employee;
 import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
 import net.javaguides.springboottesting.service.EmployeeService;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class EmployeeServiceImpl implements EmployeeService {
 
+    // keeps IN lists well below the bind parameter limits of common databases
+    static final int IN_CLAUSE_CHUNK_SIZE = 1000;
+
     /**
      * 使用建構子注入方式,相較於Autowired,有助於測試使用
      */
     private EmployeeRepository employeeRepository;
 
-    public EmployeeServiceImpl(EmployeeRepository employeeRepository){
+    private EntityManager entityManager;
+
+    private EmployeeCache employeeCache;
+
+    private EmployeeSearchIndex searchIndex;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private EmployeeLookupBatcher lookupBatcher;
+
+    private TransactionTemplate transactionTemplate;
+
+    // concurrent cache misses for the same key share one database query
+    private final SingleFlight<Long, Optional<Employee>> idLookups = new SingleFlight<>();
+
+    private final SingleFlight<String, Optional<Employee>> emailLookups = new SingleFlight<>();
+
+    /**
+     * 每累積batchSize筆就flush一次, 與hibernate.jdbc.batch_size一致才能整批送出
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    public EmployeeServiceImpl(EmployeeRepository employeeRepository, EntityManager entityManager,
+                               EmployeeCache employeeCache, EmployeeSearchIndex searchIndex,
+                               ApplicationEventPublisher eventPublisher, EmployeeLookupBatcher lookupBatcher,
+                               PlatformTransactionManager transactionManager){
         this.employeeRepository = employeeRepository;
+        this.entityManager = entityManager;
+        this.employeeCache = employeeCache;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.lookupBatcher = lookupBatcher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * 不先查詢email, 直接insert並由unique index判斷重複, 避免多一次查詢以及併發時的重複新增
+     */
     @Override
+    @Transactional
     public Employee saveEmployee(Employee employee) {
+        // 新增時忽略request帶入的id, 否則save會變成merge到既有資料
+        employee.setId(0);
+        Employee savedEmployee;
+        try {
+            savedEmployee = employeeRepository.saveAndFlush(employee);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, employee.getEmail());
+        }
+        eventPublisher.publishEvent(EmployeeChangedEvent.created(savedEmployee));
+        return savedEmployee;
+    }
+
+    /**
+     * 整批一個transaction; 預先查詢email之後, 併發的新增搶先insert同一個email時整批rollback,
+     * 改為逐筆各自一個transaction, 只有衝突的那筆回報FAILED (呼叫端不可在transaction內呼叫)
+     */
+    @Override
+    public BatchResult saveEmployees(List<Employee> employees) {
+        BatchItemResult[] results = new BatchItemResult[employees.size()];
+        Map<String, Integer> candidates = new HashMap<>();
+
+        for (int i = 0; i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            String error = EmployeeValidation.validate(employee);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(i, employee == null ? null : employee.getEmail(), error);
+            } else if (candidates.putIfAbsent(employee.getEmail(), i) != null) {
+                results[i] = BatchItemResult.failed(i, employee.getEmail(), "Duplicate email in request:" + employee.getEmail());
+            }
+        }
+
+        try {
+            BatchItemResult[] saved = transactionTemplate.execute(status -> insertAll(employees, results.clone(), candidates.keySet()));
+            return BatchResult.of(Arrays.asList(saved));
+        } catch (RuntimeException e) {
+            if (!isDuplicateEmail(e) || TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+        }
 
-        Optional<Employee> savedEmployee = employeeRepository.findByEmail(employee.getEmail());
+        for (int i = 0; i < employees.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Employee employee = employees.get(i);
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insert(employee);
+                    entityManager.flush();
+                    entityManager.clear();
+                });
+                results[i] = BatchItemResult.created(i, employee.getId(), employee.getEmail());
+            } catch (RuntimeException e) {
+                if (!isDuplicateEmail(e)) {
+                    throw e;
+                }
+                results[i] = BatchItemResult.failed(i, employee.getEmail(), "Employee already exist with given email:" + employee.getEmail());
+            }
+        }
+        return BatchResult.of(Arrays.asList(results));
+    }
+
+    private BatchItemResult[] insertAll(List<Employee> employees, BatchItemResult[] results, Collection<String> candidates) {
+        Set<String> existingEmails = new HashSet<>();
+        for (List<String> emails : chunks(candidates, IN_CLAUSE_CHUNK_SIZE)) {
+            existingEmails.addAll(employeeRepository.findExistingEmails(emails));
+        }
 
-        if(savedEmployee.isPresent()){
-            throw new ResourceNotFoundException("Employee already exist with given email:"+ employee.getEmail());
+        int pending = 0;
+        for (int i = 0; i < employees.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            Employee employee = employees.get(i);
+            if (existingEmails.contains(employee.getEmail())) {
+                results[i] = BatchItemResult.failed(i, employee.getEmail(), "Employee already exist with given email:" + employee.getEmail());
+                continue;
+            }
+            insert(employee);
+            results[i] = BatchItemResult.created(i, employee.getId(), employee.getEmail());
+            if (++pending % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
         }
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    // a rolled back attempt left the id and version on the instance, reset both so it is persisted as new again
+    private void insert(Employee employee) {
+        employee.setId(0);
+        employee.setVersion(null);
+        entityManager.persist(employee);
+        // 事件在commit之後才會被處理
+        eventPublisher.publishEvent(EmployeeChangedEvent.created(employee));
+    }
+
+    /**
+     * 讀取皆使用EmployeeView projection, 不建立managed entity
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getAllEmployees() {
+        return employeeRepository.findAllViews();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmployeeView> getEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findPageAfter(afterId, PageRequest.of(0, limit));
+    }
 
-        return employeeRepository.save(employee);
+    /**
+     * 以cursor逐筆讀取projection, 不經過persistence context, 記憶體用量不隨資料量成長
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEmployee(Consumer<EmployeeView> action) {
+        try (Stream<EmployeeView> employees = employeeRepository.streamAll()) {
+            employees.forEach(action);
+        }
     }
 
     @Override
-    public List<Employee> getAllEmployees() {
-        return employeeRepository.findAll();
+    public List<Employee> searchEmployees(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
 
+    /**
+     * 快取沒有命中時, 同一個id的併發查詢只會有一次送到資料庫(single flight), 開啟batcher時再與其他id合併成IN查詢.
+     * 不加@Transactional, 否則等待中的request也會各自佔用一條connection
+     */
     @Override
     public Optional<Employee> getEmployeeById(long id) {
-        return employeeRepository.findById(id);
+        Optional<Employee> cached = employeeCache.getById(id);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return copyOf(idLookups.execute(id, () -> {
+            Optional<EmployeeView> view = lookupBatcher.isEnabled()
+                    ? SingleFlight.await(lookupBatcher.load(id))
+                    : employeeRepository.findViewById(id);
+            Optional<Employee> employee = view.map(EmployeeView::toEmployee);
+            employee.ifPresent(employeeCache::put);
+            return employee;
+        }));
+    }
+
+    /**
+     * 先查快取, 沒有命中的id再以IN分批查詢, 一次round trip取代逐筆findById
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public EmployeeLookupResult getEmployeesByIds(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        Map<Long, Employee> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Optional<Employee> cached = employeeCache.getById(id);
+            if (cached.isPresent()) {
+                found.put(id, cached.get());
+            } else {
+                misses.add(id);
+            }
+        }
+        for (List<Long> chunk : chunks(misses, IN_CLAUSE_CHUNK_SIZE)) {
+            for (EmployeeView view : employeeRepository.findViewsByIds(chunk)) {
+                Employee employee = view.toEmployee();
+                employeeCache.put(employee);
+                found.put(employee.getId(), employee);
+            }
+        }
+
+        List<Employee> content = new ArrayList<>(found.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Employee employee = found.get(id);
+            if (employee != null) {
+                content.add(employee);
+            } else {
+                missing.add(id);
+            }
+        }
+        return new EmployeeLookupResult(content, missing);
     }
 
     @Override
+    public Optional<Employee> getEmployeeByEmail(String email) {
+        Optional<Employee> cached = employeeCache.getByEmail(email);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        return copyOf(emailLookups.execute(email, () -> {
+            Optional<Employee> employee = employeeRepository.findViewByEmail(email).map(EmployeeView::toEmployee);
+            employee.ifPresent(employeeCache::put);
+            return employee;
+        }));
+    }
+
+    // callers sharing a single-flight result each get their own instance
+    private static Optional<Employee> copyOf(Optional<Employee> employee) {
+        return employee.map(value -> value.toBuilder().build());
+    }
+
+    @Override
+    @Transactional
     public Employee updateEmployee(Employee employee) {
-        return employeeRepository.save(employee);
+        Employee updatedEmployee = employeeRepository.save(employee);
+        evict(employee.getId());
+        eventPublisher.publishEvent(EmployeeChangedEvent.updated(updatedEmployee));
+        return updatedEmployee;
+    }
+
+    /**
+     * 以單一UPDATE完成, 依影響筆數判斷資料是否存在, 不需要先讀出entity
+     */
+    @Override
+    @Transactional
+    public Optional<Employee> updateEmployee(long id, Employee employee) {
+        return updateEmployee(id, employee, null);
+    }
+
+    /**
+     * expectedVersion不為null時以version做compare-and-set, 版本不符時拋出OptimisticLockingFailureException
+     * UPDATE與衝突檢查在同一個transaction內
+     */
+    @Override
+    @Transactional
+    public Optional<Employee> updateEmployee(long id, Employee employee, Long expectedVersion) {
+        int updated;
+        try {
+            updated = expectedVersion == null
+                    ? employeeRepository.updateById(id, employee.getFirstname(), employee.getLastname(), employee.getEmail())
+                    : employeeRepository.updateByIdAndVersion(id, expectedVersion,
+                            employee.getFirstname(), employee.getLastname(), employee.getEmail());
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, employee.getEmail());
+        }
+        evict(id);
+        if (updated == 0) {
+            checkVersionConflict(id, expectedVersion);
+            return Optional.empty();
+        }
+        // read back in the same transaction: the row stays locked by the UPDATE, so this is the version just written
+        Employee updatedEmployee = employeeRepository.findViewById(id)
+                .map(EmployeeView::toEmployee)
+                .orElseThrow(() -> new IllegalStateException("Employee " + id + " vanished after its update"));
+        eventPublisher.publishEvent(EmployeeChangedEvent.updated(updatedEmployee));
+        return Optional.of(updatedEmployee);
     }
 
     @Override
-    public void deleteEmployee(long id) {
-        employeeRepository.deleteById(id);
+    @Transactional
+    public Optional<Employee> patchEmployee(long id, Employee changes) {
+        return patchEmployee(id, changes, null);
+    }
+
+    /**
+     * 回傳patch後完整的資料 (與PUT相同在同一個transaction內讀回), 事件也帶完整的資料; 沒有任何欄位時不寫入也不發布事件
+     */
+    @Override
+    @Transactional
+    public Optional<Employee> patchEmployee(long id, Employee changes, Long expectedVersion) {
+        int updated;
+        try {
+            updated = employeeRepository.patchById(id, changes, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw translateDuplicateEmail(e, changes.getEmail());
+        }
+        if (updated == 0) {
+            checkVersionConflict(id, expectedVersion);
+            return Optional.empty();
+        }
+        Employee patchedEmployee = employeeRepository.findViewById(id)
+                .map(EmployeeView::toEmployee)
+                .orElseThrow(() -> new IllegalStateException("Employee " + id + " vanished after its update"));
+        if (changes.getFirstname() != null || changes.getLastname() != null || changes.getEmail() != null) {
+            evict(id);
+            eventPublisher.publishEvent(EmployeeChangedEvent.updated(patchedEmployee));
+        }
+        return Optional.of(patchedEmployee);
+    }
+
+    // a conditional write that touched no row: missing employee (false) or stale version (exception)
+    private void checkVersionConflict(long id, Long expectedVersion) {
+        if (expectedVersion != null && employeeRepository.existsById(id)) {
+            throw new OptimisticLockingFailureException("Employee " + id + " is no longer at version " + expectedVersion);
+        }
+    }
+
+    /**
+     * 直接DELETE, 不先findById, 資料不存在時回傳false而不是拋出例外
+     */
+    @Override
+    @Transactional
+    public boolean deleteEmployee(long id) {
+        int deleted = employeeRepository.deleteEmployeeById(id);
+        evict(id);
+        if (deleted == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(EmployeeChangedEvent.deleted(id));
+        return true;
+    }
+
+    /**
+     * 每個chunk先查出實際存在的id, 只刪除並發布這些id的DELETED事件, 不存在的id不會產生事件
+     */
+    @Override
+    @Transactional
+    public int deleteEmployees(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        int deleted = 0;
+        for (List<Long> chunk : chunks(distinctIds, IN_CLAUSE_CHUNK_SIZE)) {
+            List<Long> existing = employeeRepository.findExistingIds(chunk);
+            if (existing.isEmpty()) {
+                continue;
+            }
+            deleted += employeeRepository.deleteEmployeesByIds(existing);
+            for (Long id : existing) {
+                evict(id);
+                eventPublisher.publishEvent(EmployeeChangedEvent.deleted(id));
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 立即清除, commit之後再清除一次: 避免commit前併發的讀取把舊資料重新放回快取
+     */
+    private void evict(long id) {
+        employeeCache.evict(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    employeeCache.evict(id);
+                }
+            });
+        }
+    }
+
+    private static RuntimeException translateDuplicateEmail(DataIntegrityViolationException e, String email) {
+        if (isDuplicateEmail(e)) {
+            return new ResourceNotFoundException("Employee already exist with given email:"+ email, e);
+        }
+        return e;
+    }
+
+    // entityManager.flush() is not exception-translated, so this also walks a raw PersistenceException
+    static boolean isDuplicateEmail(RuntimeException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            String constraintName = cause instanceof ConstraintViolationException
+                    ? ((ConstraintViolationException) cause).getConstraintName()
+                    : cause.getMessage();
+            if (constraintName != null && constraintName.toLowerCase().contains(Employee.EMAIL_UNIQUE_INDEX)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values, int chunkSize) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> chunk = new ArrayList<>(Math.min(values.size(), chunkSize));
+        for (T value : values) {
+            chunk.add(value);
+            if (chunk.size() == chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
     }
 
 }
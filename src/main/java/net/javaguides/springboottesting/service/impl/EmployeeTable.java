@@ -0,0 +1,454 @@
+package net.javaguides.springboottesting.service.impl;
+
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 以long id為key的open addressing hash table (linear probing), key直接存在long[], 不產生Long物件
+ * 分成多個segment, segment本身不可變: 寫入時複製該segment再發布 (copy-on-write), 讀取完全不上鎖;
+ * 寫入彼此互斥, 每次只複製一個segment (約 size / segments 筆)
+ * email另有secondary hash index, 只存email的hash與id, 命中後再與record內的email比對
+ */
+final class EmployeeTable {
+
+    // linear probing在load factor 0.5以下probe長度很短, 代價是slot數為筆數的2~4倍
+    private static final int MAX_FILL_PERCENT = 50;
+    private static final int MIN_CAPACITY = 8;
+
+    // 記憶體估算: 64-bit JVM + compressed oops, object header 12 bytes, 8 bytes對齊
+    private static final long RECORD_BYTES = align(12 + 8 + 8 + 4);
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    /**
+     * 一筆employee. firstname/lastname/email以UTF-8編碼在同一個byte[]內:
+     * [firstname長度 2 bytes][firstname][lastname長度 2 bytes][lastname][email], 省下三個String物件
+     */
+    static final class Record {
+        final long id;
+        final long version;
+        final byte[] data;
+
+        private Record(long id, long version, byte[] data) {
+            this.id = id;
+            this.version = version;
+            this.data = data;
+        }
+
+        static Record of(long id, long version, String firstname, String lastname, String email) {
+            byte[] first = utf8(firstname);
+            byte[] last = utf8(lastname);
+            byte[] mail = utf8(email);
+            byte[] data = new byte[2 + first.length + 2 + last.length + mail.length];
+            int offset = putField(data, 0, first);
+            offset = putField(data, offset, last);
+            System.arraycopy(mail, 0, data, offset, mail.length);
+            return new Record(id, version, data);
+        }
+
+        String firstname() {
+            return new String(data, 2, length(0), StandardCharsets.UTF_8);
+        }
+
+        String lastname() {
+            int offset = 2 + length(0);
+            return new String(data, offset + 2, length(offset), StandardCharsets.UTF_8);
+        }
+
+        String email() {
+            int offset = emailOffset();
+            return new String(data, offset, data.length - offset, StandardCharsets.UTF_8);
+        }
+
+        // 直接比較編碼後的bytes, 不需要decode
+        boolean hasEmail(byte[] email) {
+            int offset = emailOffset();
+            return Arrays.equals(data, offset, data.length, email, 0, email.length);
+        }
+
+        Employee toEmployee() {
+            return Employee.builder()
+                    .id(id)
+                    .firstname(firstname())
+                    .lastname(lastname())
+                    .email(email())
+                    .version(version)
+                    .build();
+        }
+
+        EmployeeView toView() {
+            return new EmployeeView(id, firstname(), lastname(), email(), version);
+        }
+
+        private int emailOffset() {
+            int offset = 2 + length(0);
+            return offset + 2 + length(offset);
+        }
+
+        private int length(int offset) {
+            return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+        }
+
+        private static int putField(byte[] data, int offset, byte[] field) {
+            if (field.length > 0xFFFF) {
+                throw new IllegalArgumentException("Field longer than 65535 bytes");
+            }
+            data[offset] = (byte) (field.length >>> 8);
+            data[offset + 1] = (byte) field.length;
+            System.arraycopy(field, 0, data, offset + 2, field.length);
+            return offset + 2 + field.length;
+        }
+    }
+
+    /**
+     * 不可變的id segment, keys為0表示空slot (sequence產生的id從1開始)
+     */
+    private static final class IdSegment {
+        private static final IdSegment EMPTY = new IdSegment(new long[0], new Record[0], 0);
+
+        private final long[] keys;
+        private final Record[] values;
+        private final int size;
+
+        private IdSegment(long[] keys, Record[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        Record get(long id, int hash) {
+            if (size == 0) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            for (int i = hash & mask; ; i = (i + 1) & mask) {
+                long key = keys[i];
+                if (key == id) {
+                    return values[i];
+                }
+                if (key == 0) {
+                    return null;
+                }
+            }
+        }
+
+        // records的id已在segment內時取代原本的值
+        IdSegment with(Collection<Record> records) {
+            int capacity = keys.length;
+            if (capacity == 0 || (long) (size + records.size()) * 100 > (long) capacity * MAX_FILL_PERCENT) {
+                capacity = capacityFor(size + records.size());
+            }
+            IdSegment copy = capacity == keys.length
+                    ? new IdSegment(keys.clone(), values.clone(), size)
+                    : rehash(capacity, 0);
+            int added = 0;
+            for (Record record : records) {
+                if (copy.insert(record)) {
+                    added++;
+                }
+            }
+            return new IdSegment(copy.keys, copy.values, size + added);
+        }
+
+        IdSegment without(long id) {
+            return size == 1 ? EMPTY : rehash(capacityFor(size - 1), id);
+        }
+
+        private IdSegment rehash(int capacity, long skipId) {
+            IdSegment copy = new IdSegment(new long[capacity], new Record[capacity], 0);
+            int kept = 0;
+            for (Record record : values) {
+                if (record != null && record.id != skipId) {
+                    copy.insert(record);
+                    kept++;
+                }
+            }
+            return new IdSegment(copy.keys, copy.values, kept);
+        }
+
+        // 只用於尚未發布的copy
+        private boolean insert(Record record) {
+            int mask = keys.length - 1;
+            for (int i = hash(record.id) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == 0) {
+                    keys[i] = record.id;
+                    values[i] = record;
+                    return true;
+                }
+                if (keys[i] == record.id) {
+                    values[i] = record;
+                    return false;
+                }
+            }
+        }
+
+        // EMPTY由所有segment共用, 不計入
+        long bytes() {
+            return this == EMPTY ? 0 : arrayBytes(keys.length, 8) + arrayBytes(values.length, 4);
+        }
+    }
+
+    /**
+     * 不可變的email segment, 只存email hash與id, ids為0表示空slot; 不同email可能有相同hash
+     */
+    private static final class EmailSegment {
+        private static final EmailSegment EMPTY = new EmailSegment(new int[0], new long[0], 0);
+
+        private final int[] hashes;
+        private final long[] ids;
+        private final int size;
+
+        private EmailSegment(int[] hashes, long[] ids, int size) {
+            this.hashes = hashes;
+            this.ids = ids;
+            this.size = size;
+        }
+
+        long find(int hash, byte[] email, EmployeeTable table) {
+            if (size == 0) {
+                return 0;
+            }
+            int mask = ids.length - 1;
+            for (int i = hash & mask; ids[i] != 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash) {
+                    Record record = table.get(ids[i]);
+                    if (record != null && record.hasEmail(email)) {
+                        return ids[i];
+                    }
+                }
+            }
+            return 0;
+        }
+
+        EmailSegment with(int[] newHashes, long[] newIds, int count) {
+            int capacity = ids.length;
+            if (capacity == 0 || (long) (size + count) * 100 > (long) capacity * MAX_FILL_PERCENT) {
+                capacity = capacityFor(size + count);
+            }
+            EmailSegment copy = capacity == ids.length
+                    ? new EmailSegment(hashes.clone(), ids.clone(), size)
+                    : rehash(capacity, 0, 0);
+            for (int i = 0; i < count; i++) {
+                copy.insert(newHashes[i], newIds[i]);
+            }
+            return new EmailSegment(copy.hashes, copy.ids, size + count);
+        }
+
+        EmailSegment without(int hash, long id) {
+            return size == 1 ? EMPTY : rehash(capacityFor(size - 1), hash, id);
+        }
+
+        private EmailSegment rehash(int capacity, int skipHash, long skipId) {
+            EmailSegment copy = new EmailSegment(new int[capacity], new long[capacity], 0);
+            int kept = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] != 0 && (ids[i] != skipId || hashes[i] != skipHash)) {
+                    copy.insert(hashes[i], ids[i]);
+                    kept++;
+                }
+            }
+            return new EmailSegment(copy.hashes, copy.ids, kept);
+        }
+
+        private void insert(int hash, long id) {
+            int mask = ids.length - 1;
+            int i = hash & mask;
+            while (ids[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            ids[i] = id;
+        }
+
+        long bytes() {
+            return this == EMPTY ? 0 : arrayBytes(hashes.length, 4) + arrayBytes(ids.length, 8);
+        }
+    }
+
+    private final int segmentShift;
+    private final AtomicReferenceArray<IdSegment> idSegments;
+    private final AtomicReferenceArray<EmailSegment> emailSegments;
+    private volatile int size;
+
+    /**
+     * @param segments segment數, 會調整為2的次方
+     */
+    EmployeeTable(int segments) {
+        int count = Integer.highestOneBit(Math.max(1, Math.min(segments, 1 << 16)) * 2 - 1);
+        this.segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        this.idSegments = new AtomicReferenceArray<>(count);
+        this.emailSegments = new AtomicReferenceArray<>(count);
+        for (int i = 0; i < count; i++) {
+            idSegments.set(i, IdSegment.EMPTY);
+            emailSegments.set(i, EmailSegment.EMPTY);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Record get(long id) {
+        int hash = hash(id);
+        return idSegments.get(segment(hash)).get(id, hash);
+    }
+
+    Record getByEmail(String email) {
+        int hash = emailHash(email);
+        long id = emailSegments.get(segment(hash)).find(hash, utf8(email), this);
+        return id == 0 ? null : get(id);
+    }
+
+    /**
+     * 新增或取代一筆, email的hash改變時才需要更新email index (index只存hash與id)
+     */
+    synchronized void put(Record record) {
+        Record previous = get(record.id);
+        int segment = segment(hash(record.id));
+        idSegments.set(segment, idSegments.get(segment).with(List.of(record)));
+        int hash = emailHash(record.email());
+        if (previous == null || emailHash(previous.email()) != hash) {
+            int emailSegment = segment(hash);
+            emailSegments.set(emailSegment, emailSegments.get(emailSegment).with(new int[]{hash}, new long[]{record.id}, 1));
+            if (previous != null) {
+                removeEmail(previous);
+            }
+        }
+        if (previous == null) {
+            size++;
+        }
+    }
+
+    /**
+     * 批次新增尚不存在的id (啟動時載入、批次新增), 每個segment只複製一次
+     */
+    synchronized void putAll(Collection<Record> records) {
+        int segments = idSegments.length();
+        List<List<Record>> byIdSegment = new ArrayList<>(segments);
+        int[][] emailHashes = new int[segments][];
+        long[][] emailIds = new long[segments][];
+        int[] emailCounts = new int[segments];
+        for (int i = 0; i < segments; i++) {
+            byIdSegment.add(new ArrayList<>());
+        }
+        for (Record record : records) {
+            byIdSegment.get(segment(hash(record.id))).add(record);
+            int hash = emailHash(record.email());
+            int segment = segment(hash);
+            if (emailHashes[segment] == null) {
+                emailHashes[segment] = new int[8];
+                emailIds[segment] = new long[8];
+            } else if (emailCounts[segment] == emailHashes[segment].length) {
+                emailHashes[segment] = Arrays.copyOf(emailHashes[segment], emailCounts[segment] * 2);
+                emailIds[segment] = Arrays.copyOf(emailIds[segment], emailCounts[segment] * 2);
+            }
+            emailHashes[segment][emailCounts[segment]] = hash;
+            emailIds[segment][emailCounts[segment]++] = record.id;
+        }
+        // id先發布, email index命中時才找得到record
+        for (int i = 0; i < segments; i++) {
+            if (!byIdSegment.get(i).isEmpty()) {
+                idSegments.set(i, idSegments.get(i).with(byIdSegment.get(i)));
+            }
+        }
+        for (int i = 0; i < segments; i++) {
+            if (emailCounts[i] > 0) {
+                emailSegments.set(i, emailSegments.get(i).with(emailHashes[i], emailIds[i], emailCounts[i]));
+            }
+        }
+        size += records.size();
+    }
+
+    synchronized Record remove(long id) {
+        Record previous = get(id);
+        if (previous == null) {
+            return null;
+        }
+        removeEmail(previous);
+        int segment = segment(hash(id));
+        idSegments.set(segment, idSegments.get(segment).without(id));
+        size--;
+        return previous;
+    }
+
+    void forEach(Consumer<Record> action) {
+        for (int i = 0; i < idSegments.length(); i++) {
+            for (Record record : idSegments.get(i).values) {
+                if (record != null) {
+                    action.accept(record);
+                }
+            }
+        }
+    }
+
+    // hash table本身 (long[] keys + Record[] values)
+    long idTableBytes() {
+        long bytes = 0;
+        for (int i = 0; i < idSegments.length(); i++) {
+            bytes += idSegments.get(i).bytes();
+        }
+        return bytes;
+    }
+
+    long emailIndexBytes() {
+        long bytes = 0;
+        for (int i = 0; i < emailSegments.length(); i++) {
+            bytes += emailSegments.get(i).bytes();
+        }
+        return bytes;
+    }
+
+    // Record物件加上各自的byte[]
+    long recordBytes() {
+        long[] bytes = new long[1];
+        forEach(record -> bytes[0] += RECORD_BYTES + arrayBytes(record.data.length, 1));
+        return bytes[0];
+    }
+
+    private void removeEmail(Record record) {
+        int hash = emailHash(record.email());
+        int segment = segment(hash);
+        emailSegments.set(segment, emailSegments.get(segment).without(hash, record.id));
+    }
+
+    // 高位元決定segment, 低位元決定slot
+    private int segment(int hash) {
+        return segmentShift == 32 ? 0 : hash >>> segmentShift;
+    }
+
+    private static int hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int emailHash(String email) {
+        return email.hashCode() * 0x9E3779B9;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while ((long) entries * 100 > (long) capacity * MAX_FILL_PERCENT) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return align(ARRAY_HEADER_BYTES + (long) length * elementSize);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
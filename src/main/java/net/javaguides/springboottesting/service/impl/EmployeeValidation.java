@@ -0,0 +1,32 @@
+package net.javaguides.springboottesting.service.impl;
+
+import net.javaguides.springboottesting.model.Employee;
+
+/**
+ * 檢查必填欄位, 回傳錯誤訊息, 資料正確時回傳null
+ */
+final class EmployeeValidation {
+
+    private EmployeeValidation(){
+    }
+
+    static String validate(Employee employee){
+        if (employee == null) {
+            return "Employee must not be null";
+        }
+        if (isBlank(employee.getFirstname())) {
+            return "firstname is required";
+        }
+        if (isBlank(employee.getLastname())) {
+            return "lastname is required";
+        }
+        if (isBlank(employee.getEmail())) {
+            return "email is required";
+        }
+        return null;
+    }
+
+    private static boolean isBlank(String value){
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,629 @@
+package net.javaguides.springboottesting.service.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.config.StorageProperties;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeeStoreStats;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.event.EmployeeChangedEvent;
+import net.javaguides.springboottesting.exception.ResourceNotFoundException;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 整個employees table放在記憶體的EmployeeService (employee.storage.type=memory):
+ * 讀取只查EmployeeTable, 不經過資料庫也不上鎖; 寫入先改記憶體並放入queue即回覆,
+ * 由單一writer thread依相同順序分批寫回EmployeeRepository, commit之後才發布EmployeeChangedEvent
+ * 寫回失敗的寫入各自以倍增的間隔重試, 只擋住同一個id之後的寫入, 其他id照常寫回;
+ * 違反資料庫限制 (DataIntegrityViolationException) 的寫入重試write-max-attempts次後放棄 (dead-letter), 記錄在log與stats,
+ * 此時記憶體與資料庫不一致直到重啟; 其他失敗 (連線等) 持續重試. 尚未commit的數量見stats()與employee.storage.writes.* metrics
+ * 記憶體是唯一的真實來源: 只適用單一instance, 其他程式直接改資料庫要重啟後才看得到
+ * id取自employees_seq, 與Employee的pooled-lo generator相同: nextval的值v保留[v, v + Employee.ID_ALLOCATION_SIZE),
+ * 每個值只會由一方取得, 所以不會與Hibernate產生的id重複
+ */
+@Slf4j
+public class InMemoryEmployeeService implements EmployeeService, DisposableBean {
+
+    private static final int LOAD_CHUNK_SIZE = 100_000;
+    private static final long INITIAL_RETRY_BACKOFF_MILLIS = 100;
+
+    private enum WriteType {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    private static final class PendingWrite {
+        private final WriteType type;
+        private final long id;
+        // DELETE時為null
+        private final EmployeeTable.Record record;
+        // failed attempts and when to try again (System.nanoTime()), only the writer thread touches them
+        private int attempts;
+        private long nextAttemptNanos;
+
+        private PendingWrite(WriteType type, long id, EmployeeTable.Record record) {
+            this.type = type;
+            this.id = id;
+            this.record = record;
+        }
+    }
+
+    private EmployeeRepository employeeRepository;
+
+    private EmployeeSearchIndex searchIndex;
+
+    private ApplicationEventPublisher eventPublisher;
+
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final EmployeeTable table;
+    private final BlockingQueue<PendingWrite> writes;
+    private final int writeBatchSize;
+    private final long enqueueTimeoutNanos;
+    private final long maxRetryBackoffMillis;
+    private final int maxAttempts;
+    // 寫回失敗等待重試的寫入, 以及排在它們後面的同id寫入 (依queue順序), 只有writer thread存取
+    private final List<PendingWrite> retry = new ArrayList<>();
+    // 記憶體的修改順序必須與queue內的順序一致
+    private final Object writeLock = new Object();
+    private final Object idLock = new Object();
+    private final Object completionLock = new Object();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong persisted = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+
+    // 目前保留的id區段 [nextId, lastId], 受idLock保護
+    private long nextId = 1;
+    private long lastId = 0;
+    private volatile boolean running;
+    private volatile int retrying;
+    private Thread writer;
+
+    public InMemoryEmployeeService(EmployeeRepository employeeRepository, EmployeeSearchIndex searchIndex,
+                                   ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                   StorageProperties properties){
+        this.employeeRepository = employeeRepository;
+        this.searchIndex = searchIndex;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.table = new EmployeeTable(properties.getSegments());
+        this.writes = new ArrayBlockingQueue<>(properties.getWriteQueueCapacity());
+        this.writeBatchSize = Math.max(1, properties.getWriteBatchSize());
+        this.enqueueTimeoutNanos = properties.getWriteEnqueueTimeout().toNanos();
+        this.maxRetryBackoffMillis = Math.max(INITIAL_RETRY_BACKOFF_MILLIS, properties.getWriteRetryMaxBackoff().toMillis());
+        this.maxAttempts = Math.max(1, properties.getWriteMaxAttempts());
+    }
+
+    /**
+     * 以cursor整批載入資料庫內容, 之後啟動writer thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            List<EmployeeTable.Record> chunk = new ArrayList<>();
+            try (Stream<EmployeeView> views = employeeRepository.streamAll()) {
+                views.forEach(view -> {
+                    chunk.add(EmployeeTable.Record.of(view.getId(), view.getVersion() == null ? 0 : view.getVersion(),
+                            view.getFirstname(), view.getLastname(), view.getEmail()));
+                    if (chunk.size() == LOAD_CHUNK_SIZE) {
+                        table.putAll(chunk);
+                        chunk.clear();
+                    }
+                });
+            }
+            table.putAll(chunk);
+        });
+        EmployeeStoreStats stats = stats();
+        log.info("Loaded {} employees into memory, about {} bytes per employee",
+                stats.getEmployees(), Math.round(stats.getBytesPerEmployee()));
+
+        running = true;
+        writer = new Thread(this::runWriter, "employee-storage-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (writer != null) {
+            try {
+                // 剩下的寫入仍會送出
+                writer.join(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (writer.isAlive()) {
+                log.error("Shutting down with {} employee writes not persisted", getPendingWriteCount());
+            }
+        }
+    }
+
+    @Override
+    public Employee saveEmployee(Employee employee) {
+        validate(employee);
+        long id = allocateId();
+        EmployeeTable.Record record = EmployeeTable.Record.of(id, 0,
+                employee.getFirstname(), employee.getLastname(), employee.getEmail());
+        synchronized (writeLock) {
+            if (table.getByEmail(employee.getEmail()) != null) {
+                throw duplicateEmail(employee.getEmail());
+            }
+            enqueue(new PendingWrite(WriteType.INSERT, id, record));
+            table.put(record);
+        }
+        return record.toEmployee();
+    }
+
+    @Override
+    public BatchResult saveEmployees(List<Employee> employees) {
+        BatchItemResult[] results = new BatchItemResult[employees.size()];
+        Set<String> emails = new HashSet<>();
+        for (int i = 0; i < employees.size(); i++) {
+            Employee employee = employees.get(i);
+            String error = EmployeeValidation.validate(employee);
+            if (error != null) {
+                results[i] = BatchItemResult.failed(i, employee == null ? null : employee.getEmail(), error);
+            } else if (!emails.add(employee.getEmail())) {
+                results[i] = BatchItemResult.failed(i, employee.getEmail(), "Duplicate email in request:" + employee.getEmail());
+            }
+        }
+
+        synchronized (writeLock) {
+            List<EmployeeTable.Record> records = new ArrayList<>();
+            try {
+                for (int i = 0; i < employees.size(); i++) {
+                    if (results[i] != null) {
+                        continue;
+                    }
+                    Employee employee = employees.get(i);
+                    if (table.getByEmail(employee.getEmail()) != null) {
+                        results[i] = BatchItemResult.failed(i, employee.getEmail(), "Employee already exist with given email:" + employee.getEmail());
+                        continue;
+                    }
+                    EmployeeTable.Record record = EmployeeTable.Record.of(allocateId(), 0,
+                            employee.getFirstname(), employee.getLastname(), employee.getEmail());
+                    try {
+                        enqueue(new PendingWrite(WriteType.INSERT, record.id, record));
+                    } catch (RejectedExecutionException e) {
+                        // 之後的都不再嘗試, 已放入queue的照常新增
+                        for (int j = i; j < employees.size(); j++) {
+                            if (results[j] == null) {
+                                results[j] = BatchItemResult.failed(j, employees.get(j).getEmail(), e.getMessage());
+                            }
+                        }
+                        break;
+                    }
+                    records.add(record);
+                    results[i] = BatchItemResult.created(i, record.id, employee.getEmail());
+                }
+            } finally {
+                // 已放入queue的都要出現在記憶體
+                table.putAll(records);
+            }
+        }
+        return BatchResult.of(Arrays.asList(results));
+    }
+
+    @Override
+    public List<EmployeeView> getAllEmployees() {
+        return views(recordsAfter(0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<EmployeeView> getEmployeesAfter(long afterId, int limit) {
+        return views(recordsAfter(afterId, limit));
+    }
+
+    @Override
+    public void forEachEmployee(Consumer<EmployeeView> action) {
+        for (EmployeeTable.Record record : recordsAfter(0, Integer.MAX_VALUE)) {
+            action.accept(record.toView());
+        }
+    }
+
+    // search index由commit後的EmployeeChangedEvent更新, 會稍微落後記憶體內容
+    @Override
+    public List<Employee> searchEmployees(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    @Override
+    public Optional<Employee> getEmployeeById(long id) {
+        EmployeeTable.Record record = table.get(id);
+        return record == null ? Optional.empty() : Optional.of(record.toEmployee());
+    }
+
+    @Override
+    public EmployeeLookupResult getEmployeesByIds(Collection<Long> ids) {
+        Set<Long> distinctIds = new LinkedHashSet<>(ids);
+        distinctIds.remove(null);
+        List<Employee> content = new ArrayList<>(distinctIds.size());
+        List<Long> missing = new ArrayList<>();
+        for (Long id : distinctIds) {
+            EmployeeTable.Record record = table.get(id);
+            if (record != null) {
+                content.add(record.toEmployee());
+            } else {
+                missing.add(id);
+            }
+        }
+        return new EmployeeLookupResult(content, missing);
+    }
+
+    @Override
+    public Optional<Employee> getEmployeeByEmail(String email) {
+        EmployeeTable.Record record = table.getByEmail(email);
+        return record == null ? Optional.empty() : Optional.of(record.toEmployee());
+    }
+
+    // 與repository.save相同: id不存在時新增
+    @Override
+    public Employee updateEmployee(Employee employee) {
+        return updateEmployee(employee.getId(), employee, employee.getVersion())
+                .orElseGet(() -> saveEmployee(employee));
+    }
+
+    @Override
+    public Optional<Employee> updateEmployee(long id, Employee employee) {
+        return updateEmployee(id, employee, null);
+    }
+
+    @Override
+    public Optional<Employee> updateEmployee(long id, Employee employee, Long expectedVersion) {
+        validate(employee);
+        EmployeeTable.Record record;
+        synchronized (writeLock) {
+            EmployeeTable.Record current = table.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            checkVersion(current, expectedVersion);
+            checkEmailAvailable(employee.getEmail(), id);
+            record = EmployeeTable.Record.of(id, current.version + 1,
+                    employee.getFirstname(), employee.getLastname(), employee.getEmail());
+            enqueue(new PendingWrite(WriteType.UPDATE, id, record));
+            table.put(record);
+        }
+        return Optional.of(record.toEmployee());
+    }
+
+    @Override
+    public Optional<Employee> patchEmployee(long id, Employee changes) {
+        return patchEmployee(id, changes, null);
+    }
+
+    @Override
+    public Optional<Employee> patchEmployee(long id, Employee changes, Long expectedVersion) {
+        synchronized (writeLock) {
+            EmployeeTable.Record current = table.get(id);
+            if (current == null) {
+                return Optional.empty();
+            }
+            checkVersion(current, expectedVersion);
+            if (changes.getFirstname() == null && changes.getLastname() == null && changes.getEmail() == null) {
+                return Optional.of(current.toEmployee());
+            }
+            if (changes.getEmail() != null) {
+                checkEmailAvailable(changes.getEmail(), id);
+            }
+            EmployeeTable.Record record = EmployeeTable.Record.of(id, current.version + 1,
+                    changes.getFirstname() != null ? changes.getFirstname() : current.firstname(),
+                    changes.getLastname() != null ? changes.getLastname() : current.lastname(),
+                    changes.getEmail() != null ? changes.getEmail() : current.email());
+            enqueue(new PendingWrite(WriteType.UPDATE, id, record));
+            table.put(record);
+            return Optional.of(record.toEmployee());
+        }
+    }
+
+    @Override
+    public boolean deleteEmployee(long id) {
+        synchronized (writeLock) {
+            if (table.get(id) == null) {
+                return false;
+            }
+            enqueue(new PendingWrite(WriteType.DELETE, id, null));
+            table.remove(id);
+            return true;
+        }
+    }
+
+    @Override
+    public int deleteEmployees(Collection<Long> ids) {
+        int deleted = 0;
+        for (Long id : new LinkedHashSet<>(ids)) {
+            if (id != null && deleteEmployee(id)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 等待呼叫之前放入queue的寫入都commit, 寫回持續失敗時等到timeout回傳false
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (completionLock) {
+            while (completed.get() < target) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                completionLock.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public EmployeeStoreStats stats() {
+        int employees = table.size();
+        long idTableBytes = table.idTableBytes();
+        long emailIndexBytes = table.emailIndexBytes();
+        long recordBytes = table.recordBytes();
+        long totalBytes = idTableBytes + emailIndexBytes + recordBytes;
+        return new EmployeeStoreStats(employees, idTableBytes, emailIndexBytes, recordBytes, totalBytes,
+                employees == 0 ? 0 : (double) totalBytes / employees,
+                getPendingWriteCount(), retrying, persisted.get(), failed.get(), rejected.get(), deadLettered.get());
+    }
+
+    public long getPendingWriteCount() {
+        return enqueued.get() - completed.get();
+    }
+
+    public int getRetryingWriteCount() {
+        return retrying;
+    }
+
+    public long getFailedWriteCount() {
+        return failed.get();
+    }
+
+    public long getRejectedWriteCount() {
+        return rejected.get();
+    }
+
+    public long getDeadLetteredWriteCount() {
+        return deadLettered.get();
+    }
+
+    // 掃描整個table再依id排序, 列表不是這個實作要加速的路徑
+    private List<EmployeeTable.Record> recordsAfter(long afterId, int limit) {
+        List<EmployeeTable.Record> records = new ArrayList<>(table.size());
+        table.forEach(record -> {
+            if (record.id > afterId) {
+                records.add(record);
+            }
+        });
+        records.sort(Comparator.comparingLong(record -> record.id));
+        return records.size() > limit ? records.subList(0, limit) : records;
+    }
+
+    private static List<EmployeeView> views(List<EmployeeTable.Record> records) {
+        List<EmployeeView> views = new ArrayList<>(records.size());
+        for (EmployeeTable.Record record : records) {
+            views.add(record.toView());
+        }
+        return views;
+    }
+
+    private long allocateId() {
+        synchronized (idLock) {
+            if (nextId > lastId) {
+                nextId = employeeRepository.nextSequenceValue();
+                lastId = nextId + Employee.ID_ALLOCATION_SIZE - 1;
+            }
+            return nextId++;
+        }
+    }
+
+    // 呼叫端持有writeLock, queue滿時最多等待write-enqueue-timeout, 之後丟出RejectedExecutionException (503)
+    private void enqueue(PendingWrite write) {
+        if (!running) {
+            throw new IllegalStateException("Employee storage is not running");
+        }
+        enqueued.incrementAndGet();
+        try {
+            if (!writes.offer(write, enqueueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                enqueued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Too many employee writes waiting to be persisted");
+            }
+        } catch (InterruptedException e) {
+            enqueued.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the write queue", e);
+        }
+    }
+
+    /**
+     * 每輪取出到期的重試與queue內的新寫入; 尚未到期的重試擋住同一個id之後的寫入, 不會讓writer停下來
+     */
+    private void runWriter() {
+        while (running || !writes.isEmpty() || !retry.isEmpty()) {
+            try {
+                long now = System.nanoTime();
+                List<PendingWrite> batch = new ArrayList<>();
+                Set<Long> blocked = new HashSet<>();
+                long nextDueNanos = TimeUnit.MILLISECONDS.toNanos(100);
+                for (Iterator<PendingWrite> waiting = retry.iterator(); waiting.hasNext(); ) {
+                    PendingWrite write = waiting.next();
+                    long wait = write.nextAttemptNanos - now;
+                    if (wait <= 0 && !blocked.contains(write.id) && batch.size() < writeBatchSize) {
+                        batch.add(write);
+                        waiting.remove();
+                    } else if (blocked.add(write.id) && wait > 0) {
+                        // 同id的第一筆決定何時可以再試
+                        nextDueNanos = Math.min(nextDueNanos, wait);
+                    }
+                }
+                List<PendingWrite> drained = new ArrayList<>();
+                if (batch.isEmpty()) {
+                    PendingWrite first = writes.poll(Math.max(nextDueNanos, 1), TimeUnit.NANOSECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    drained.add(first);
+                }
+                writes.drainTo(drained, writeBatchSize - batch.size() - drained.size());
+                for (PendingWrite write : drained) {
+                    // 同一個id還有等待重試的寫入, 排在它後面
+                    if (blocked.contains(write.id)) {
+                        retry.add(write);
+                    } else {
+                        batch.add(write);
+                    }
+                }
+                List<PendingWrite> kept = batch.isEmpty() ? List.of() : persist(batch);
+                // 仍要重試的寫入早於retry內同id的寫入, 放回最前面
+                retry.addAll(0, kept);
+                retrying = retry.size();
+                synchronized (completionLock) {
+                    completed.addAndGet(batch.size() - kept.size());
+                    completionLock.notifyAll();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 整批一個transaction, 失敗時逐筆重試, 避免一筆錯誤讓整批都沒寫入;
+     * 回傳仍要重試的寫入, 包含同一個id之後的寫入 (順序不能顛倒), 其他id照常寫入
+     */
+    private List<PendingWrite> persist(List<PendingWrite> batch) {
+        List<PendingWrite> kept = new ArrayList<>();
+        int done = 0;
+        int givenUp = 0;
+        try {
+            transactionTemplate.executeWithoutResult(status -> batch.forEach(this::apply));
+            done = batch.size();
+        } catch (RuntimeException e) {
+            log.warn("Write batch of {} employees failed, retrying one by one", batch.size(), e);
+            Set<Long> blocked = new HashSet<>();
+            for (PendingWrite write : batch) {
+                if (blocked.contains(write.id)) {
+                    kept.add(write);
+                    continue;
+                }
+                try {
+                    transactionTemplate.executeWithoutResult(status -> apply(write));
+                    done++;
+                } catch (RuntimeException ex) {
+                    failed.incrementAndGet();
+                    write.attempts++;
+                    if (ex instanceof DataIntegrityViolationException && write.attempts >= maxAttempts) {
+                        // 不會自行恢復, 放棄這筆; 同一個id之後的寫入照常寫回
+                        log.error("Giving up on {} of employee {} after {} attempts, memory and database differ until restart",
+                                write.type, write.id, write.attempts, ex);
+                        deadLettered.incrementAndGet();
+                        givenUp++;
+                        done++;
+                        continue;
+                    }
+                    blocked.add(write.id);
+                    kept.add(write);
+                    write.nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis(write.attempts));
+                    if (write.attempts == 1) {
+                        log.error("Could not persist {} of employee {}, keeping it for retry", write.type, write.id, ex);
+                    } else {
+                        log.debug("Retry {} of {} for employee {} failed", write.attempts, write.type, write.id, ex);
+                    }
+                }
+            }
+        }
+        persisted.addAndGet(done - givenUp);
+        return kept;
+    }
+
+    private long backoffMillis(int attempts) {
+        return Math.min(INITIAL_RETRY_BACKOFF_MILLIS << Math.min(attempts - 1, 20), maxRetryBackoffMillis);
+    }
+
+    // 事件在同一個transaction內發布, commit之後listener才會收到
+    private void apply(PendingWrite write) {
+        EmployeeTable.Record record = write.record;
+        switch (write.type) {
+            case INSERT:
+                employeeRepository.insertWithId(record.id, record.firstname(), record.lastname(), record.email(), record.version);
+                eventPublisher.publishEvent(EmployeeChangedEvent.created(record.toEmployee()));
+                break;
+            case UPDATE:
+                // 與記憶體相同, version各自加一
+                employeeRepository.updateById(record.id, record.firstname(), record.lastname(), record.email());
+                eventPublisher.publishEvent(EmployeeChangedEvent.updated(record.toEmployee()));
+                break;
+            case DELETE:
+                employeeRepository.deleteEmployeeById(write.id);
+                eventPublisher.publishEvent(EmployeeChangedEvent.deleted(write.id));
+                break;
+        }
+    }
+
+    private void checkVersion(EmployeeTable.Record current, Long expectedVersion) {
+        if (expectedVersion != null && current.version != expectedVersion) {
+            throw new OptimisticLockingFailureException("Employee " + current.id + " is no longer at version " + expectedVersion);
+        }
+    }
+
+    private void checkEmailAvailable(String email, long id) {
+        EmployeeTable.Record owner = table.getByEmail(email);
+        if (owner != null && owner.id != id) {
+            throw duplicateEmail(email);
+        }
+    }
+
+    // 與資料庫的NOT NULL限制相同的錯誤類型
+    private static void validate(Employee employee) {
+        String error = EmployeeValidation.validate(employee);
+        if (error != null) {
+            throw new DataIntegrityViolationException(error);
+        }
+    }
+
+    private static ResourceNotFoundException duplicateEmail(String email) {
+        return new ResourceNotFoundException("Employee already exist with given email:" + email);
+    }
+}
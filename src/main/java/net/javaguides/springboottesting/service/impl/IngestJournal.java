@@ -0,0 +1,183 @@
+package net.javaguides.springboottesting.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.model.Employee;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * write-behind的append-only journal, 每行一筆NDJSON:
+ * 新增記錄 {"seq":1,"trackingId":"...","employee":{...}}, 以及checkpoint記錄 {"seq":1,"checkpoint":true}
+ * checkpoint表示seq(含)之前的記錄都已commit或dead-letter, 重啟時只重播checkpoint之後的記錄
+ * 無法新增的記錄連同錯誤寫入另一個檔案 (ingest.dead-letter), 不會被截斷, 由維運人員處理
+ * 呼叫端負責序列化寫入順序 (append/checkpoint/truncate/deadLetter不是thread-safe);
+ * 寫入時不fsync, 由sync(position)做group commit: 同時等待的呼叫端共用一次force, 可與寫入同時進行
+ */
+@Slf4j
+final class IngestJournal implements Closeable {
+
+    static final String FILE_NAME = "ingest.journal";
+    static final String DEAD_LETTER_FILE_NAME = "ingest.dead-letter";
+
+    @Getter
+    @Setter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    static class Entry {
+        private long seq;
+        private String trackingId;
+        private Employee employee;
+        private boolean checkpoint;
+        // only set in the dead-letter file
+        private String error;
+    }
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private final boolean sync;
+    private final FileChannel channel;
+    private final FileChannel deadLetters;
+    // writes to the journal channel so far, bumped by the serialized writer
+    private volatile long written;
+    private final Object forceLock = new Object();
+    // writes known to be on disk, guarded by forceLock
+    private long forced;
+    private volatile long forces;
+
+    IngestJournal(Path directory, ObjectMapper objectMapper, boolean sync) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve(FILE_NAME);
+        this.objectMapper = objectMapper;
+        this.sync = sync;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.deadLetters = FileChannel.open(directory.resolve(DEAD_LETTER_FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * 將最後一個checkpoint之後的新增記錄依序交給action, 回傳journal內最大的seq
+     */
+    long recover(Consumer<Entry> action) throws IOException {
+        long lastSeq = 0;
+        long checkpoint = 0;
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(line, Entry.class);
+                } catch (JsonProcessingException e) {
+                    // crash時最後一行可能只寫了一半, 該筆未回覆202, 略過即可
+                    log.warn("Skipping unreadable ingest journal line: {}", e.getOriginalMessage());
+                    continue;
+                }
+                lastSeq = Math.max(lastSeq, entry.getSeq());
+                if (entry.isCheckpoint()) {
+                    checkpoint = Math.max(checkpoint, entry.getSeq());
+                } else {
+                    entries.add(entry);
+                }
+            }
+        }
+        for (Entry entry : entries) {
+            if (entry.getSeq() > checkpoint) {
+                action.accept(entry);
+            }
+        }
+        return lastSeq;
+    }
+
+    /**
+     * 回傳寫入後的position, 交給sync(position)確保已寫入磁碟
+     */
+    long append(long seq, String trackingId, Employee employee) throws IOException {
+        write(channel, new Entry(seq, trackingId, employee, false, null), false);
+        return ++written;
+    }
+
+    long checkpoint(long seq) throws IOException {
+        write(channel, new Entry(seq, null, null, true, null), false);
+        return ++written;
+    }
+
+    // always forced: the checkpoint written after it drops the record from the journal
+    void deadLetter(long seq, String trackingId, Employee employee, String error) throws IOException {
+        write(deadLetters, new Entry(seq, trackingId, employee, false, error), true);
+    }
+
+    // 所有記錄都已commit時清空, 避免journal無限成長
+    long truncate() throws IOException {
+        channel.truncate(0);
+        return ++written;
+    }
+
+    /**
+     * journal-sync開啟時等到position之前的寫入都已fsync; 已被其他呼叫端的force涵蓋就直接回傳,
+     * 否則一次force涵蓋目前為止所有的寫入 (group commit). 可以不經呼叫端的序列化直接呼叫
+     */
+    void sync(long position) throws IOException {
+        if (!sync) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (forced >= position) {
+                return;
+            }
+            long target = written;
+            channel.force(false);
+            forced = target;
+            forces++;
+        }
+    }
+
+    long position(){
+        return written;
+    }
+
+    long getForces(){
+        return forces;
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    private void write(FileChannel channel, Entry entry, boolean force) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1);
+        buffer.put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        deadLetters.close();
+    }
+}
@@ -0,0 +1,397 @@
+package net.javaguides.springboottesting.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import net.javaguides.springboottesting.config.IngestProperties;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.IngestStats;
+import net.javaguides.springboottesting.dto.IngestStatus;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeIngestService;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * write-behind新增: 驗證後寫入journal並放入queue即回覆, 由單一flusher thread以saveEmployees分批group commit
+ * queue本身lock-free, 容量由size計數限制; journal的寫入順序必須與queue一致, 因此append+offer在同一把lock內,
+ * fsync則在lock外以group commit進行: 同時送出的請求共用一次fsync, 不會讓所有新增排隊等各自的fsync
+ * commit之後寫checkpoint, 重啟時重播checkpoint之後的記錄; commit後、checkpoint前crash的記錄會被重播一次,
+ * 重播的記錄先以email查詢, 已存在且姓名相同即視為當時已commit, 回報CREATED而不重複新增; 姓名不同是別人的資料, 回報FAILED
+ * 一批commit失敗時拆成單筆重試, 單獨仍失敗的記錄最多嘗試max-attempts次後寫入dead-letter檔,
+ * 不會卡住後面的記錄; 資料庫無法連線造成的失敗不計次數, 整批保留並持續重試
+ */
+@Slf4j
+public class WriteBehindEmployeeIngestService implements EmployeeIngestService, DisposableBean {
+
+    private static final long RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final class Pending {
+        private final long seq;
+        private final String trackingId;
+        private final Employee employee;
+        // replayed from the journal, may already have been committed before the crash
+        private final boolean replayed;
+        // failed attempts on its own, only the flusher thread touches it
+        private int attempts;
+
+        private Pending(long seq, String trackingId, Employee employee, boolean replayed) {
+            this.seq = seq;
+            this.trackingId = trackingId;
+            this.employee = employee;
+            this.replayed = replayed;
+        }
+    }
+
+    private EmployeeService employeeService;
+
+    private final int capacity;
+    private final int flushSize;
+    private final int maxAttempts;
+    private final long flushIntervalNanos;
+    private final IngestJournal journal;
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    // queue內加上flusher手上尚未commit的筆數
+    private final AtomicInteger size = new AtomicInteger();
+    private final Object journalLock = new Object();
+    private final Cache<String, IngestStatus> statuses;
+    // 尚未commit的重試記錄 (依seq排序), 只有flusher thread存取
+    private final List<Pending> retry = new ArrayList<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder created = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+
+    private long lastSeq;
+    // last checkpoint written, only the flusher thread touches it
+    private long checkpointed;
+    private volatile boolean running;
+    private Thread flusher;
+
+    public WriteBehindEmployeeIngestService(EmployeeService employeeService, ObjectMapper objectMapper,
+                                            IngestProperties properties) throws IOException {
+        this.employeeService = employeeService;
+        this.capacity = properties.getQueueCapacity();
+        this.flushSize = Math.max(1, properties.getFlushSize());
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.statuses = Caffeine.newBuilder()
+                .maximumSize(properties.getStatusRetention())
+                .build();
+        this.journal = new IngestJournal(properties.getJournalDir(), objectMapper, properties.isJournalSync());
+    }
+
+    /**
+     * 重播journal內尚未commit的記錄後啟動flusher
+     */
+    public void start() throws IOException {
+        synchronized (journalLock) {
+            lastSeq = journal.recover(entry -> {
+                statuses.put(entry.getTrackingId(), IngestStatus.pending(entry.getTrackingId()));
+                queue.add(new Pending(entry.getSeq(), entry.getTrackingId(), entry.getEmployee(), true));
+                size.incrementAndGet();
+                replayed.increment();
+            });
+        }
+        if (replayed.sum() > 0) {
+            log.info("Replaying {} uncommitted employee creates from the ingest journal", replayed.sum());
+        }
+        running = true;
+        flusher = new Thread(this::run, "employee-ingest-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public IngestStatus submit(Employee employee) {
+        String trackingId = UUID.randomUUID().toString();
+        String error = EmployeeValidation.validate(employee);
+        if (error != null) {
+            return IngestStatus.failed(trackingId, error);
+        }
+        if (!running) {
+            throw new RejectedExecutionException("Ingest is shutting down");
+        }
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            rejected.increment();
+            throw new RejectedExecutionException("Ingest queue is full");
+        }
+        IngestStatus status = IngestStatus.pending(trackingId);
+        statuses.put(trackingId, status);
+        long position;
+        try {
+            synchronized (journalLock) {
+                long seq = ++lastSeq;
+                position = journal.append(seq, trackingId, employee);
+                queue.add(new Pending(seq, trackingId, employee, false));
+            }
+        } catch (IOException e) {
+            size.decrementAndGet();
+            statuses.invalidate(trackingId);
+            throw new UncheckedIOException("Could not write the ingest journal", e);
+        }
+        accepted.increment();
+        if (size.get() >= flushSize) {
+            LockSupport.unpark(flusher);
+        }
+        try {
+            journal.sync(position);
+        } catch (IOException e) {
+            // 已排入queue, 仍會commit, 只是crash時無法保證重播; 不回覆202, 結果可由tracking id查詢
+            throw new UncheckedIOException("Could not sync the ingest journal for " + trackingId, e);
+        }
+        return status;
+    }
+
+    @Override
+    public Optional<IngestStatus> getStatus(String trackingId) {
+        return Optional.ofNullable(statuses.getIfPresent(trackingId));
+    }
+
+    @Override
+    public IngestStats stats() {
+        long journalBytes;
+        try {
+            journalBytes = journal.size();
+        } catch (IOException e) {
+            journalBytes = -1;
+        }
+        return new IngestStats(size.get(), capacity, accepted.sum(), rejected.sum(), created.sum(), failed.sum(),
+                deadLettered.sum(), flushes.sum(), replayed.sum(), journalBytes, journal.getForces());
+    }
+
+    private void run() {
+        while (running || size.get() > 0) {
+            if (!retry.isEmpty()) {
+                LockSupport.parkNanos(this, RETRY_BACKOFF_NANOS);
+            } else if (running && size.get() < flushSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            try {
+                while (flush() >= flushSize && retry.isEmpty()) {
+                    // 仍有完整的一批就繼續, 不等下一個interval
+                }
+            } catch (RuntimeException | IOException e) {
+                log.warn("Ingest flush failed, retrying {} creates", retry.size(), e);
+                if (!running) {
+                    // 關閉中仍無法commit, 留在journal內等下次啟動重播
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出最多flushSize筆做一次group commit, 回傳有結果 (CREATED/FAILED) 的筆數, 其餘留在retry
+     */
+    int flush() throws IOException {
+        List<Pending> batch = new ArrayList<>(retry);
+        retry.clear();
+        Pending next;
+        while (batch.size() < flushSize && (next = queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        IngestStatus[] outcomes = new IngestStatus[batch.size()];
+        RuntimeException failure = null;
+        try {
+            resolveReplayed(batch, outcomes);
+            List<Integer> remaining = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                if (outcomes[i] == null) {
+                    remaining.add(i);
+                }
+            }
+            try {
+                save(batch, remaining, outcomes);
+            } catch (RuntimeException e) {
+                if (isUnavailable(e)) {
+                    throw e;
+                }
+                if (remaining.size() == 1) {
+                    attemptFailed(batch, remaining.get(0), e, outcomes);
+                } else {
+                    // 找出造成整批失敗的記錄, 其他記錄單筆commit
+                    for (int index : remaining) {
+                        saveAlone(batch, index, outcomes);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            // 已有結果的記錄照常完成, 其餘留在retry
+            failure = e;
+        }
+
+        int done = complete(batch, outcomes);
+        if (failure != null) {
+            throw failure;
+        }
+        return done;
+    }
+
+    // 重啟前可能已commit: email已存在且姓名相同就是當時新增的那筆, 姓名不同則是與別人的email重複
+    private void resolveReplayed(List<Pending> batch, IngestStatus[] outcomes){
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            if (!pending.replayed) {
+                continue;
+            }
+            Optional<Employee> existing = employeeService.getEmployeeByEmail(pending.employee.getEmail());
+            if (existing.isEmpty()) {
+                continue;
+            }
+            Employee stored = existing.get();
+            if (Objects.equals(stored.getFirstname(), pending.employee.getFirstname())
+                    && Objects.equals(stored.getLastname(), pending.employee.getLastname())) {
+                outcomes[i] = IngestStatus.created(pending.trackingId, stored.getId());
+                created.increment();
+            } else {
+                outcomes[i] = IngestStatus.failed(pending.trackingId,
+                        "Employee already exist with given email:" + pending.employee.getEmail());
+                failed.increment();
+            }
+        }
+    }
+
+    private void save(List<Pending> batch, List<Integer> indexes, IngestStatus[] outcomes){
+        if (indexes.isEmpty()) {
+            return;
+        }
+        List<Employee> employees = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            employees.add(batch.get(index).employee);
+        }
+        BatchResult result = employeeService.saveEmployees(employees);
+        flushes.increment();
+        for (BatchItemResult item : result.getItems()) {
+            String trackingId = batch.get(indexes.get(item.getIndex())).trackingId;
+            if (item.getStatus() == BatchItemResult.Status.CREATED) {
+                outcomes[indexes.get(item.getIndex())] = IngestStatus.created(trackingId, item.getId());
+                created.increment();
+            } else {
+                outcomes[indexes.get(item.getIndex())] = IngestStatus.failed(trackingId, item.getError());
+                failed.increment();
+            }
+        }
+    }
+
+    private void saveAlone(List<Pending> batch, int index, IngestStatus[] outcomes){
+        try {
+            save(batch, Collections.singletonList(index), outcomes);
+        } catch (RuntimeException e) {
+            if (isUnavailable(e)) {
+                throw e;
+            }
+            attemptFailed(batch, index, e, outcomes);
+        }
+    }
+
+    private void attemptFailed(List<Pending> batch, int index, RuntimeException e, IngestStatus[] outcomes){
+        Pending pending = batch.get(index);
+        if (++pending.attempts >= maxAttempts) {
+            log.error("Dead-lettering employee create {} after {} attempts", pending.trackingId, pending.attempts, e);
+            outcomes[index] = IngestStatus.failed(pending.trackingId,
+                    "Gave up after " + pending.attempts + " attempts: " + e.getMessage());
+        } else {
+            log.warn("Employee create {} failed on its own, attempt {} of {}", pending.trackingId, pending.attempts, maxAttempts, e);
+        }
+    }
+
+    /**
+     * 沒有結果的記錄留在retry; checkpoint只推進到最早一筆未完成的記錄之前, 失敗 (dead-letter) 的記錄先寫入dead-letter檔
+     */
+    private int complete(List<Pending> batch, IngestStatus[] outcomes) throws IOException {
+        long checkpoint = Long.MAX_VALUE;
+        int done = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes[i] == null) {
+                retry.add(batch.get(i));
+                checkpoint = Math.min(checkpoint, batch.get(i).seq - 1);
+            } else {
+                done++;
+            }
+        }
+        if (done == 0) {
+            return 0;
+        }
+        // queue依seq排序, 重試的記錄排在前面, 最後一筆即為這批最大的seq
+        checkpoint = Math.min(checkpoint, batch.get(batch.size() - 1).seq);
+
+        long position;
+        synchronized (journalLock) {
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                if (outcomes[i] != null && pending.attempts >= maxAttempts) {
+                    journal.deadLetter(pending.seq, pending.trackingId, pending.employee, outcomes[i].getError());
+                    deadLettered.increment();
+                }
+            }
+            if (checkpoint > checkpointed) {
+                journal.checkpoint(checkpoint);
+                checkpointed = checkpoint;
+            }
+            if (size.addAndGet(-done) == 0) {
+                journal.truncate();
+            }
+            position = journal.position();
+        }
+        journal.sync(position);
+        // checkpoint之後才公開結果, 查到CREATED/FAILED的記錄不會再被重播
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes[i] != null) {
+                statuses.put(batch.get(i).trackingId, outcomes[i]);
+            }
+        }
+        return done;
+    }
+
+    // 連線或transaction無法建立, 與記錄內容無關
+    private static boolean isUnavailable(RuntimeException e){
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            flusher.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        synchronized (journalLock) {
+            journal.close();
+        }
+    }
+}
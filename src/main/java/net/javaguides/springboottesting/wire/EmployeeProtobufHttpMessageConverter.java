@@ -0,0 +1,177 @@
+package net.javaguides.springboottesting.wire;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * application/x-protobuf, schema為classpath:proto/employee.proto
+ * 只支援Employee/EmployeeView及其List (包成EmployeeList message), 其他回應類型請用JSON/Smile/CBOR
+ * reader/writer在建構時依schema建好, 每個request不再解析schema或查找serializer
+ */
+public class EmployeeProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final MediaType APPLICATION_PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final String SCHEMA = "proto/employee.proto";
+
+    private enum Kind {
+        EMPLOYEE,
+        VIEW,
+        EMPLOYEE_LIST,
+        VIEW_LIST
+    }
+
+    // repeated欄位必須在message內, list以此包裝
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class EmployeeList<T> {
+        private List<T> employees;
+    }
+
+    private final ObjectReader employeeReader;
+    private final ObjectReader employeeListReader;
+    private final ObjectWriter employeeWriter;
+    private final ObjectWriter viewWriter;
+    private final ObjectWriter employeeListWriter;
+    private final ObjectWriter viewListWriter;
+
+    public EmployeeProtobufHttpMessageConverter(ProtobufMapper mapper) throws IOException {
+        super(APPLICATION_PROTOBUF);
+        NativeProtobufSchema schema;
+        try (InputStream in = new ClassPathResource(SCHEMA).getInputStream()) {
+            schema = ProtobufSchemaLoader.std.loadNative(in, true);
+        }
+        ProtobufSchema employee = schema.forType("Employee");
+        ProtobufSchema list = schema.forType("EmployeeList");
+        this.employeeReader = mapper.readerFor(Employee.class).with(employee);
+        this.employeeListReader = mapper.readerFor(new TypeReference<EmployeeList<Employee>>() {}).with(list);
+        this.employeeWriter = mapper.writerFor(Employee.class).with(employee);
+        this.viewWriter = mapper.writerFor(EmployeeView.class).with(employee);
+        this.employeeListWriter = mapper.writerFor(new TypeReference<EmployeeList<Employee>>() {}).with(list);
+        this.viewListWriter = mapper.writerFor(new TypeReference<EmployeeList<EmployeeView>>() {}).with(list);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return kindOf(clazz) != null;
+    }
+
+    // Spring MVC collects the producible media types by the raw class (ArrayList), the element type is checked by canWrite(Type, ...)
+    @Override
+    public List<MediaType> getSupportedMediaTypes(Class<?> clazz) {
+        return supports(clazz) || List.class.isAssignableFrom(clazz) ? getSupportedMediaTypes() : Collections.emptyList();
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        Kind kind = kindOf(type);
+        return (kind == Kind.EMPLOYEE || kind == Kind.EMPLOYEE_LIST) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return kindOf(type != null ? type : clazz) != null && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return read(kindOf(type), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(kindOf(clazz), inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        Kind kind = kindOf(type != null ? type : object.getClass());
+        if (kind == null) {
+            throw new HttpMessageNotWritableException("No protobuf schema for " + object.getClass().getName());
+        }
+        // 不關閉response的output stream, 與Jackson的converter相同
+        switch (kind) {
+            case EMPLOYEE:
+                employeeWriter.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+                break;
+            case VIEW:
+                viewWriter.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), object);
+                break;
+            case EMPLOYEE_LIST:
+                employeeListWriter.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), new EmployeeList<>((List<?>) object));
+                break;
+            case VIEW_LIST:
+                viewListWriter.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), new EmployeeList<>((List<?>) object));
+                break;
+        }
+    }
+
+    private Object read(Kind kind, HttpInputMessage inputMessage) throws IOException {
+        try {
+            if (kind == Kind.EMPLOYEE) {
+                return employeeReader.readValue(inputMessage.getBody());
+            }
+            if (kind == Kind.EMPLOYEE_LIST) {
+                EmployeeList<Employee> list = employeeListReader.readValue(inputMessage.getBody());
+                return list.getEmployees() == null ? Collections.emptyList() : list.getEmployees();
+            }
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Invalid protobuf body: " + e.getMessage(), e, inputMessage);
+        }
+        throw new HttpMessageNotReadableException("Only Employee bodies can be read as protobuf", inputMessage);
+    }
+
+    @Nullable
+    private static Kind kindOf(@Nullable Type type) {
+        if (type == null) {
+            return null;
+        }
+        ResolvableType resolved = ResolvableType.forType(type);
+        Class<?> raw = resolved.toClass();
+        if (raw == Employee.class) {
+            return Kind.EMPLOYEE;
+        }
+        if (raw == EmployeeView.class) {
+            return Kind.VIEW;
+        }
+        if (List.class.isAssignableFrom(raw)) {
+            Class<?> element = resolved.asCollection().getGeneric(0).toClass();
+            if (element == Employee.class) {
+                return Kind.EMPLOYEE_LIST;
+            }
+            if (element == EmployeeView.class) {
+                return Kind.VIEW_LIST;
+            }
+        }
+        return null;
+    }
+}
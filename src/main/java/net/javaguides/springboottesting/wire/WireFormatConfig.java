@@ -0,0 +1,64 @@
+package net.javaguides.springboottesting.wire;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 依Accept / Content-Type選擇格式: application/json (預設), application/x-jackson-smile, application/cbor,
+ * application/x-protobuf (只有Employee及其List)
+ * 所有mapper都由Boot的Jackson2ObjectMapperBuilder建立, 設定與JSON相同
+ */
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public WireFormatConfig(Jackson2ObjectMapperBuilder objectMapperBuilder){
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    // property accessors generated with LambdaMetafactory instead of reflection, picked up by every Boot built ObjectMapper
+    @Bean
+    public static BlackbirdModule blackbirdModule(){
+        return new BlackbirdModule();
+    }
+
+    // same class as Spring MVC's default Smile/CBOR converters, so they replace them after the JSON converter
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false).factory(new SmileFactory()).build());
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+        return new MappingJackson2CborHttpMessageConverter(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+
+    // appended last: with Accept */* the first converter that can write the type wins and that must stay JSON
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(protobufHttpMessageConverter(objectMapperBuilder));
+    }
+
+    public static EmployeeProtobufHttpMessageConverter protobufHttpMessageConverter(Jackson2ObjectMapperBuilder builder){
+        ProtobufMapper mapper = new ProtobufMapper();
+        builder.configure(mapper);
+        try {
+            return new EmployeeProtobufHttpMessageConverter(mapper);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not load the employee protobuf schema", e);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- employees table as mapped by model/Employee; later changes go into new V<n>__*.sql files, never edit an applied one
+create sequence employees_seq start with 1 increment by 50;
+
+create table employees (
+    id bigint not null,
+    email varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    version bigint not null,
+    primary key (id)
+);
+
+create unique index ux_employees_email on employees (email);
+create index ix_employees_last_first on employees (last_name, first_name);
@@ -0,0 +1,114 @@
+package net.javaguides.springboottesting.load;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 同時保持load.connections (預設10000) 個request進行中, 比較servlet (Tomcat, 每個request一條thread)
+ * 與reactive (Netty + R2DBC) 的throughput及latency
+ * 執行方式: ./mvnw -Preactive,load test -Dtest=ReactiveStackLoadTests -Dload.connections=10000 -Dload.duration=PT30S
+ * 需要足夠的file descriptor (client與server各佔一個, ulimit -n 至少為連線數的兩倍)
+ */
+@Tag("load")
+public class ReactiveStackLoadTests {
+
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 10_000);
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT10S"));
+    private static final int SEED = 1000;
+
+    // Junit test for servlet vs reactive stack under many concurrent connections
+    @DisplayName("Junit test for servlet vs reactive stack under many concurrent connections")
+    @Test
+    public void givenManyConcurrentConnections_whenGetById_thenCompareServletAndReactiveStacks() throws Exception {
+        // given - precondition or setup
+        // when - action or the behavior that we are going test
+        LoadReport servlet = measure("default");
+        LoadReport reactive = measure("reactive");
+
+        // then - verify the output
+        System.out.printf("GET by id with %d concurrent connections for %s%nservlet:%n%sreactive:%n%s",
+                CONNECTIONS, DURATION, servlet.format(), reactive.format());
+        assertThat(servlet.throughput()).isPositive();
+        assertThat(reactive.throughput()).isPositive();
+    }
+
+    private LoadReport measure(String profile) throws Exception {
+        String database = "load-" + UUID.randomUUID();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .profiles(profile)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1",
+                        "--spring.r2dbc.url=r2dbc:h2:mem:///" + database + ";DB_CLOSE_DELAY=-1",
+                        "--logging.level.root=WARN",
+                        "--employee.cache.type=none",
+                        "--server.tomcat.max-connections=" + CONNECTIONS,
+                        "--server.tomcat.accept-count=" + CONNECTIONS)) {
+            // the JPA service is also present in the reactive profile and shares the database
+            List<Long> ids = LoadDriver.seed(context.getBean(EmployeeService.class), SEED);
+            String port = context.getEnvironment().getProperty("local.server.port");
+            return drive("http://localhost:" + port + "/api/employees/", ids);
+        }
+    }
+
+    /**
+     * 每個request完成後立即送出下一個, 讓進行中的request數固定為CONNECTIONS
+     */
+    private LoadReport drive(String baseUri, List<Long> ids) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        LatencyRecorder recorder = new LatencyRecorder();
+        long deadline = System.nanoTime() + DURATION.toNanos();
+        CountDownLatch done = new CountDownLatch(CONNECTIONS);
+        for (int i = 0; i < CONNECTIONS; i++) {
+            send(client, baseUri, ids, recorder, deadline, done);
+        }
+        done.await(DURATION.toMillis() + TimeUnit.MINUTES.toMillis(2), TimeUnit.MILLISECONDS);
+
+        Map<LoadDriver.Operation, LatencyRecorder.Snapshot> operations = new EnumMap<>(LoadDriver.Operation.class);
+        LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+        operations.put(LoadDriver.Operation.GET, snapshot);
+        return new LoadReport(operations, snapshot, DURATION);
+    }
+
+    private void send(HttpClient client, String baseUri, List<Long> ids, LatencyRecorder recorder, long deadline,
+                      CountDownLatch done){
+        if (System.nanoTime() >= deadline) {
+            done.countDown();
+            return;
+        }
+        long id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + id)).GET().build();
+        long start = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() == 200) {
+                        recorder.record(System.nanoTime() - start);
+                    } else {
+                        recorder.recordError();
+                    }
+                    send(client, baseUri, ids, recorder, deadline, done);
+                });
+    }
+}
@@ -0,0 +1,173 @@
+package net.javaguides.springboottesting.reactive;
+
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT) // 整合測試
+@ActiveProfiles("reactive")
+public class ReactiveEmployeeRouterITests {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeRepository jpaRepository;
+
+    @BeforeEach
+    void setup(){
+        // 執行每段測試前,清空資料
+        employeeRepository.deleteAll().block();
+    }
+
+    // Junit test for reactive create and get employee by id REST API
+    @DisplayName("Junit test for reactive create and get employee by id REST API")
+    @Test
+    public void givenEmployeeObject_whenCreateThenGetById_thenReturnEmployeeWithETag() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+
+        // when - action or the behavior that we are going test
+        Employee created = webTestClient.post().uri("/api/employees")
+                .bodyValue(employee)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Employee.class)
+                .returnResult().getResponseBody();
+
+        // then - verify the output
+        assertThat(created.getId()).isPositive();
+        webTestClient.get().uri("/api/employees/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("ivesxxx@google.com.tw");
+        webTestClient.get().uri("/api/employees/{id}", created.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        webTestClient.get().uri("/api/employees?email={email}", "ivesxxx@google.com.tw")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.id").isEqualTo(created.getId());
+    }
+
+    // Junit test for reactive list and page REST API
+    @DisplayName("Junit test for reactive list and page REST API")
+    @Test
+    public void givenListOfEmployees_whenGetAllAndPage_thenStreamEmployeesInIdOrder() throws Exception {
+        // given - precondition or setup
+        for (String name : List.of("Ives", "Dada", "Tony")) {
+            webTestClient.post().uri("/api/employees")
+                    .bodyValue(Employee.builder().firstname(name).lastname("He").email(name + "@gmail.com").build())
+                    .exchange()
+                    .expectStatus().isCreated();
+        }
+
+        // when - action or the behavior that we are going test
+        List<Employee> streamed = webTestClient.get().uri("/api/employees")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Employee.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        // then - verify the output
+        assertThat(streamed).extracting(Employee::getFirstname).containsExactly("Ives", "Dada", "Tony");
+        webTestClient.get().uri("/api/employees")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.size()").isEqualTo(3);
+        webTestClient.get().uri("/api/employees?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content.size()").isEqualTo(2)
+                .jsonPath("$.nextAfter").isEqualTo(streamed.get(1).getId());
+    }
+
+    // Junit test for reactive update and delete employee REST API
+    @DisplayName("Junit test for reactive update and delete employee REST API")
+    @Test
+    public void givenSavedEmployee_whenUpdateThenDelete_thenReturnUpdatedThenNotFound() throws Exception {
+        // given - precondition or setup
+        Employee created = webTestClient.post().uri("/api/employees")
+                .bodyValue(Employee.builder().firstname("Ives").lastname("He").email("ives@gmail.com").build())
+                .exchange()
+                .expectBody(Employee.class)
+                .returnResult().getResponseBody();
+
+        // when - action or the behavior that we are going test
+        webTestClient.put().uri("/api/employees/{id}", created.getId())
+                .bodyValue(Employee.builder().firstname("Dada").lastname("Lin").email("dada@gmail.com").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody()
+                .jsonPath("$.firstname").isEqualTo("Dada")
+                .jsonPath("$.version").isEqualTo(1);
+        webTestClient.delete().uri("/api/employees/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        // then - verify the output
+        webTestClient.get().uri("/api/employees/{id}", created.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+        webTestClient.put().uri("/api/employees/{id}", created.getId())
+                .bodyValue(Employee.builder().firstname("Dada").lastname("Lin").email("dada@gmail.com").build())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    // Junit test for reactive ids next to Hibernate generated ids
+    @DisplayName("Junit test for reactive ids next to Hibernate generated ids")
+    @Test
+    public void givenHibernateGeneratedIds_whenCreateReactively_thenIdsDoNotCollide() throws Exception {
+        // given - precondition or setup Hibernate先取得一個id區段
+        List<Long> ids = new ArrayList<>();
+        ids.add(jpaRepository.save(Employee.builder().firstname("Ives").lastname("He").email("jpa0@gmail.com").build()).getId());
+
+        // when - action or the behavior that we are going test reactive與JPA交錯新增, JPA用完區段後再取下一個
+        for (int i = 0; i < 3; i++) {
+            ids.add(webTestClient.post().uri("/api/employees")
+                    .bodyValue(Employee.builder().firstname("Dada").lastname("He").email("reactive" + i + "@gmail.com").build())
+                    .exchange()
+                    .expectStatus().isCreated()
+                    .expectBody(Employee.class)
+                    .returnResult().getResponseBody().getId());
+        }
+        for (int i = 1; i <= Employee.ID_ALLOCATION_SIZE; i++) {
+            ids.add(jpaRepository.save(Employee.builder().firstname("Tony").lastname("He").email("jpa" + i + "@gmail.com").build()).getId());
+        }
+
+        // then - verify the output
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(employeeRepository.count().block()).isEqualTo(ids.size());
+    }
+}
@@ -0,0 +1,43 @@
+package net.javaguides.springboottesting.reactive;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * employees資料表的R2DBC mapping, 欄位與JPA的Employee相同; 對外仍回傳Employee, JSON格式不變
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Table("employees")
+public class EmployeeRow {
+    @Id
+    private Long id;
+    @Column("first_name")
+    private String firstname;
+    @Column("last_name")
+    private String lastname;
+    private String email;
+    @Version
+    private Long version;
+
+    public Employee toEmployee(){
+        return Employee.builder()
+                .id(id)
+                .firstname(firstname)
+                .lastname(lastname)
+                .email(email)
+                .version(version)
+                .build();
+    }
+}
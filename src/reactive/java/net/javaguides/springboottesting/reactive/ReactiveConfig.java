@@ -0,0 +1,69 @@
+package net.javaguides.springboottesting.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RequestPredicates.queryParam;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * reactive profile: WebFlux (Netty) + R2DBC
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    @Bean
+    public RouterFunction<ServerResponse> employeeRoutes(ReactiveEmployeeHandler handler){
+        return route(POST("/api/employees"), handler::createEmployee)
+                .andRoute(GET("/api/employees").and(queryParam("limit", limit -> true)), handler::getEmployeesPage)
+                .andRoute(GET("/api/employees").and(queryParam("email", email -> true)), handler::getEmployeeByEmail)
+                .andRoute(GET("/api/employees").and(ReactiveConfig::acceptsNdjson), handler::streamEmployees)
+                .andRoute(GET("/api/employees"), handler::getAllEmployees)
+                .andRoute(GET("/api/employees/{id}"), handler::getEmployeeById)
+                .andRoute(PUT("/api/employees/{id}"), handler::updateEmployee)
+                .andRoute(DELETE("/api/employees/{id}"), handler::deleteEmployee);
+    }
+
+    // accept() would also match */*, the NDJSON stream is only served when asked for explicitly
+    private static boolean acceptsNdjson(ServerRequest request){
+        return request.headers().accept().contains(MediaType.APPLICATION_NDJSON);
+    }
+
+    // Tomcat is also on the classpath and would otherwise be picked for the reactive server
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(){
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * 有R2DBC ConnectionFactory時Spring Boot不建立JDBC DataSource, 在此自行建立,
+     * Flyway (建立schema)、JPA (其他service) 與R2DBC連到同一個H2 database
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties(){
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties dataSourceProperties){
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+}
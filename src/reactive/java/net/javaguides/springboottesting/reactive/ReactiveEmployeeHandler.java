@@ -0,0 +1,105 @@
+package net.javaguides.springboottesting.reactive;
+
+import net.javaguides.springboottesting.dto.EmployeePage;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * /api/employees的WebFlux handler, 回應格式與EmployeeController相同;
+ * 列表以Flux逐筆寫出, 不先收集成List
+ */
+@Component
+@Profile("reactive")
+public class ReactiveEmployeeHandler {
+
+    // same cap as EmployeeController.MAX_PAGE_SIZE
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private ReactiveEmployeeService employeeService;
+
+    public ReactiveEmployeeHandler(ReactiveEmployeeService employeeService){
+        this.employeeService = employeeService;
+    }
+
+    public Mono<ServerResponse> createEmployee(ServerRequest request){
+        return request.bodyToMono(Employee.class)
+                .flatMap(employeeService::saveEmployee)
+                .flatMap(employee -> ServerResponse.status(HttpStatus.CREATED).bodyValue(employee));
+    }
+
+    public Mono<ServerResponse> getAllEmployees(ServerRequest request){
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(employeeService.getAllEmployees(), Employee.class);
+    }
+
+    public Mono<ServerResponse> streamEmployees(ServerRequest request){
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(employeeService.getAllEmployees(), Employee.class);
+    }
+
+    public Mono<ServerResponse> getEmployeesPage(ServerRequest request){
+        long after = request.queryParam("after").map(Long::parseLong).orElse(0L);
+        int limit = request.queryParam("limit").map(Integer::parseInt).orElse(MAX_PAGE_SIZE);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return employeeService.getEmployeesAfter(after, pageSize)
+                .collectList()
+                .flatMap(employees -> {
+                    Long nextAfter = employees.size() < pageSize ? null : employees.get(employees.size() - 1).getId();
+                    return ServerResponse.ok().bodyValue(new EmployeePage(views(employees), nextAfter));
+                });
+    }
+
+    public Mono<ServerResponse> getEmployeeByEmail(ServerRequest request){
+        return employeeService.getEmployeeByEmail(request.queryParam("email").orElse(""))
+                .flatMap(employee -> ServerResponse.ok().bodyValue(employee))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // ETag is the entity version; a matching If-None-Match answers 304 without writing the body
+    public Mono<ServerResponse> getEmployeeById(ServerRequest request){
+        return employeeService.getEmployeeById(id(request))
+                .flatMap(employee -> {
+                    String etag = "\"" + employee.getVersion() + "\"";
+                    return request.checkNotModified(etag)
+                            .switchIfEmpty(Mono.defer(() -> ServerResponse.ok().eTag(etag).bodyValue(employee)));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> updateEmployee(ServerRequest request){
+        long id = id(request);
+        return request.bodyToMono(Employee.class)
+                .flatMap(employee -> employeeService.updateEmployee(id, employee))
+                .flatMap(employee -> ServerResponse.ok().eTag("\"" + employee.getVersion() + "\"").bodyValue(employee))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    public Mono<ServerResponse> deleteEmployee(ServerRequest request){
+        return employeeService.deleteEmployee(id(request))
+                .flatMap(deleted -> deleted
+                        ? ServerResponse.noContent().build()
+                        : ServerResponse.notFound().build());
+    }
+
+    private static long id(ServerRequest request){
+        return Long.parseLong(request.pathVariable("id"));
+    }
+
+    private static List<EmployeeView> views(List<Employee> employees){
+        return employees.stream()
+                .map(e -> new EmployeeView(e.getId(), e.getFirstname(), e.getLastname(), e.getEmail(), e.getVersion()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,45 @@
+package net.javaguides.springboottesting.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * EmployeeRepository的reactive版本, 查詢在R2DBC connection上非阻塞執行
+ */
+public interface ReactiveEmployeeRepository extends ReactiveCrudRepository<EmployeeRow, Long> {
+    Mono<EmployeeRow> findByEmail(String email);
+
+    Flux<EmployeeRow> findByFirstnameAndLastname(String firstname, String lastname);
+
+    // same sequence as the JPA mapping; a value v owns the ids [v, v + Employee.ID_ALLOCATION_SIZE) (pooled-lo),
+    // the row takes v itself, which no Hibernate block contains
+    @Query("select next value for employees_seq")
+    Mono<Long> nextId();
+
+    // explicit insert: the id comes from the sequence, so save() would treat the row as existing and UPDATE it
+    @Modifying
+    @Query("insert into employees (id, first_name, last_name, email, version) values (:id, :firstname, :lastname, :email, 0)")
+    Mono<Integer> insert(@Param("id") long id, @Param("firstname") String firstname,
+                         @Param("lastname") String lastname, @Param("email") String email);
+
+    @Query("select * from employees order by id")
+    Flux<EmployeeRow> findAllOrderById();
+
+    // keyset (seek) pagination, same as EmployeeRepository.findPageAfter
+    @Query("select * from employees where id > :after order by id limit :limit")
+    Flux<EmployeeRow> findPageAfter(@Param("after") long after, @Param("limit") int limit);
+
+    @Modifying
+    @Query("update employees set first_name = :firstname, last_name = :lastname, email = :email,"
+            + " version = version + 1 where id = :id")
+    Mono<Integer> updateById(@Param("id") long id, @Param("firstname") String firstname,
+                             @Param("lastname") String lastname, @Param("email") String email);
+
+    @Modifying
+    @Query("delete from employees where id = :id")
+    Mono<Integer> deleteEmployeeById(@Param("id") long id);
+}
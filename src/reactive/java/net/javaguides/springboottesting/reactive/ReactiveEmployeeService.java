@@ -0,0 +1,17 @@
+package net.javaguides.springboottesting.reactive;
+
+import net.javaguides.springboottesting.model.Employee;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> saveEmployee(Employee employee);
+    Flux<Employee> getAllEmployees();
+    Flux<Employee> getEmployeesAfter(long afterId, int limit);
+    Mono<Employee> getEmployeeById(long id);
+    Mono<Employee> getEmployeeByEmail(String email);
+    Flux<Employee> getEmployeesByName(String firstname, String lastname);
+    // empty when the employee does not exist
+    Mono<Employee> updateEmployee(long id, Employee employee);
+    Mono<Boolean> deleteEmployee(long id);
+}
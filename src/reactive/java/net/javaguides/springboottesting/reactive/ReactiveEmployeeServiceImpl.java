@@ -0,0 +1,80 @@
+package net.javaguides.springboottesting.reactive;
+
+import net.javaguides.springboottesting.exception.ResourceNotFoundException;
+import net.javaguides.springboottesting.model.Employee;
+import org.springframework.context.annotation.Profile;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private ReactiveEmployeeRepository employeeRepository;
+    // not a bean: the JPA transactionManager stays the only PlatformTransactionManager
+    private TransactionalOperator transactionalOperator;
+
+    public ReactiveEmployeeServiceImpl(ReactiveEmployeeRepository employeeRepository, ConnectionFactory connectionFactory){
+        this.employeeRepository = employeeRepository;
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    /**
+     * 與EmployeeServiceImpl相同, 不先查詢email, 由unique index判斷重複
+     */
+    @Override
+    public Mono<Employee> saveEmployee(Employee employee) {
+        return employeeRepository.nextId()
+                .flatMap(id -> employeeRepository.insert(id, employee.getFirstname(), employee.getLastname(), employee.getEmail())
+                        .thenReturn(employee.toBuilder().id(id).version(0L).build()))
+                .onErrorMap(DataIntegrityViolationException.class,
+                        e -> new ResourceNotFoundException("Employee already exist with given email:" + employee.getEmail(), e));
+    }
+
+    @Override
+    public Flux<Employee> getAllEmployees() {
+        return employeeRepository.findAllOrderById().map(EmployeeRow::toEmployee);
+    }
+
+    @Override
+    public Flux<Employee> getEmployeesAfter(long afterId, int limit) {
+        return employeeRepository.findPageAfter(afterId, limit).map(EmployeeRow::toEmployee);
+    }
+
+    @Override
+    public Mono<Employee> getEmployeeById(long id) {
+        return employeeRepository.findById(id).map(EmployeeRow::toEmployee);
+    }
+
+    @Override
+    public Mono<Employee> getEmployeeByEmail(String email) {
+        return employeeRepository.findByEmail(email).map(EmployeeRow::toEmployee);
+    }
+
+    @Override
+    public Flux<Employee> getEmployeesByName(String firstname, String lastname) {
+        return employeeRepository.findByFirstnameAndLastname(firstname, lastname).map(EmployeeRow::toEmployee);
+    }
+
+    /**
+     * 與servlet版本相同: UPDATE後在同一個transaction內讀回, row仍被UPDATE鎖住, 回傳的是剛寫入的version
+     */
+    @Override
+    public Mono<Employee> updateEmployee(long id, Employee employee) {
+        return employeeRepository.updateById(id, employee.getFirstname(), employee.getLastname(), employee.getEmail())
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> employeeRepository.findById(id))
+                .map(EmployeeRow::toEmployee)
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Boolean> deleteEmployee(long id) {
+        return employeeRepository.deleteEmployeeById(id).map(deleted -> deleted > 0);
+    }
+}
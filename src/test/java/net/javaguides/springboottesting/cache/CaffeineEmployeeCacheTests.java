@@ -0,0 +1,78 @@
+package net.javaguides.springboottesting.cache;
+
+import net.javaguides.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CaffeineEmployeeCacheTests {
+
+    private CaffeineEmployeeCache employeeCache;
+
+    private Employee employee;
+
+    @BeforeEach
+    public void setup(){
+        employeeCache = new CaffeineEmployeeCache(100, Duration.ofMinutes(1));
+        employee = Employee.builder()
+                .id(1L)
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+    }
+
+    // Junit test for cache lookup by id and email
+    @DisplayName("Junit test for cache lookup by id and email")
+    @Test
+    public void givenCachedEmployee_whenGetByIdAndEmail_thenReturnCopies(){
+        // given - precondition or setup
+        employeeCache.put(employee);
+
+        // when - action or the behavior that we are going test
+        Employee byId = employeeCache.getById(employee.getId()).get();
+        Employee byEmail = employeeCache.getByEmail(employee.getEmail()).get();
+        byId.setFirstname("changed");
+
+        // then - verify the output 回傳的是複本, 修改不影響快取
+        assertThat(byEmail.getId()).isEqualTo(employee.getId());
+        assertThat(employeeCache.getById(employee.getId()).get().getFirstname()).isEqualTo("Ives");
+        assertThat(employeeCache.stats().getHitCount()).isEqualTo(3);
+    }
+
+    // Junit test for cache eviction
+    @DisplayName("Junit test for cache eviction")
+    @Test
+    public void givenCachedEmployee_whenEvict_thenMissByIdAndEmail(){
+        // given - precondition or setup
+        employeeCache.put(employee);
+
+        // when - action or the behavior that we are going test
+        employeeCache.evict(employee.getId());
+
+        // then - verify the output
+        assertThat(employeeCache.getById(employee.getId())).isEmpty();
+        assertThat(employeeCache.getByEmail(employee.getEmail())).isEmpty();
+    }
+
+    // Junit test for stale email mapping
+    @DisplayName("Junit test for stale email mapping")
+    @Test
+    public void givenChangedEmail_whenGetByOldEmail_thenReturnEmpty(){
+        // given - precondition or setup
+        employeeCache.put(employee);
+        employeeCache.put(employee.toBuilder().email("newxxx@google.com.tw").build());
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> byOldEmail = employeeCache.getByEmail(employee.getEmail());
+
+        // then - verify the output
+        assertThat(byOldEmail).isEmpty();
+        assertThat(employeeCache.getByEmail("newxxx@google.com.tw")).isPresent();
+    }
+}
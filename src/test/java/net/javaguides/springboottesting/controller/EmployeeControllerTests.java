@@ -1,13 +1,19 @@
 package net.javaguides.springboottesting.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.event.EmployeeChangeFeed;
 import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeExportService;
+import net.javaguides.springboottesting.service.EmployeeImportService;
 import net.javaguides.springboottesting.service.EmployeeService;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
@@ -36,6 +42,15 @@ public class EmployeeControllerTests {
     @MockBean
     private EmployeeService employeeService;
 
+    @MockBean
+    private EmployeeImportService employeeImportService;
+
+    @MockBean
+    private EmployeeExportService employeeExportService;
+
+    @MockBean
+    private EmployeeChangeFeed employeeChangeFeed;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -78,19 +93,9 @@ public class EmployeeControllerTests {
     @Test
     public void givenListOfEmployee_whenGetAllEmployees_thenReturnEmployeesList() throws Exception {
         // given - precondition or setup
-        List<Employee> listOfEmployees = new ArrayList<>();
-        listOfEmployees.add(Employee.builder()
-            .id(1L)
-            .firstname("Ives")
-            .lastname("He")
-            .email("ivesxxx@google.com.tw")
-            .build());
-        listOfEmployees.add(Employee.builder()
-            .id(2L)
-            .firstname("DDD")
-            .lastname("XXX")
-            .email("iDvaxxx@google.com.tw")
-            .build());
+        List<EmployeeView> listOfEmployees = new ArrayList<>();
+        listOfEmployees.add(new EmployeeView(1L, "Ives", "He", "ivesxxx@google.com.tw", 0L));
+        listOfEmployees.add(new EmployeeView(2L, "DDD", "XXX", "iDvaxxx@google.com.tw", 0L));
         given(employeeService.getAllEmployees()).willReturn(listOfEmployees);
 
         // when - action or the behavior that we are going test
@@ -165,9 +170,8 @@ public class EmployeeControllerTests {
                 .email("sdsdccc@google.com.tw")
                 .build();
 
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(savedEmployee));
-        given(employeeService.updateEmployee(any(Employee.class)))
-                .willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeService.updateEmployee(eq(employeeId), any(Employee.class)))
+                .willAnswer(invocation -> Optional.of(invocation.getArgument(1)));
 
         // when - action or the behavior that we are going test
         ResultActions response = mockMvc.perform(put("/api/employees/{id}",employeeId)
@@ -200,9 +204,8 @@ public class EmployeeControllerTests {
                 .email("sdsdccc@google.com.tw")
                 .build();
 
-        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.empty());
-        given(employeeService.updateEmployee(any(Employee.class)))
-                .willAnswer(invocation -> invocation.getArgument(0));
+        given(employeeService.updateEmployee(eq(employeeId), any(Employee.class)))
+                .willReturn(Optional.empty());
 
         // when - action or the behavior that we are going test
         ResultActions response = mockMvc.perform(put("/api/employees/{id}",employeeId)
@@ -217,16 +220,242 @@ public class EmployeeControllerTests {
     // Junit test for delete employee REST API
     @DisplayName("Junit test for delete employee REST API")
     @Test
-    public void givenEmployeeId_whenDeleteEmployeeById_thenReturn200() throws Exception {
+    public void givenEmployeeId_whenDeleteEmployeeById_thenReturn204() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        given(employeeService.deleteEmployee(employeeId)).willReturn(true);
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}",employeeId));
+
+        // then - verify the output
+        response.andExpect(status().isNoContent())
+                .andDo(print());
+    }
+
+    // Junit test for delete employee REST API - negative scenario
+    @DisplayName("Junit test for delete employee REST API - negative scenario")
+    @Test
+    public void givenMissingEmployeeId_whenDeleteEmployeeById_thenReturn404() throws Exception {
         // given - precondition or setup
         long employeeId = 1L;
-        willDoNothing().given(employeeService).deleteEmployee(employeeId);
+        given(employeeService.deleteEmployee(employeeId)).willReturn(false);
 
         // when - action or the behavior that we are going test
         ResultActions response = mockMvc.perform(delete("/api/employees/{id}",employeeId));
 
+        // then - verify the output
+        response.andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
+    // Junit test for bulk delete employees REST API
+    @DisplayName("Junit test for bulk delete employees REST API")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenReturnDeletedCount() throws Exception {
+        // given - precondition or setup
+        given(employeeService.deleteEmployees(List.of(1L, 2L, 3L))).willReturn(2);
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(delete("/api/employees").param("ids", "1,2,3"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.requested", is(3)))
+                .andExpect(jsonPath("$.deleted", is(2)));
+    }
+
+    // Junit test for keyset pagination REST API
+    @DisplayName("Junit test for keyset pagination REST API")
+    @Test
+    public void givenAfterAndLimit_whenGetEmployeesPage_thenReturnPageWithNextCursor() throws Exception {
+        // given - precondition or setup
+        List<EmployeeView> listOfEmployees = new ArrayList<>();
+        listOfEmployees.add(new EmployeeView(11L, "Ives", "He", "ivesxxx@google.com.tw", 0L));
+        listOfEmployees.add(new EmployeeView(12L, "DDD", "XXX", "iDvaxxx@google.com.tw", 0L));
+        given(employeeService.getEmployeesAfter(10L, 2)).willReturn(listOfEmployees);
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("after", "10")
+                .param("limit", "2"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.content.size()", is(2)))
+                .andExpect(jsonPath("$.nextAfter", is(12)));
+    }
+
+    // Junit test for keyset pagination REST API - last page
+    @DisplayName("Junit test for keyset pagination REST API - last page")
+    @Test
+    public void givenLastPage_whenGetEmployeesPage_thenReturnNoNextCursor() throws Exception {
+        // given - precondition or setup
+        given(employeeService.getEmployeesAfter(0L, EmployeeController.MAX_PAGE_SIZE))
+                .willReturn(List.of(new EmployeeView(1L, "Ives", "He", "ivesxxx@google.com.tw", 0L)));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("limit", "100000"));
+
+        // then - verify the output
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.content.size()", is(1)))
+                .andExpect(jsonPath("$.nextAfter").doesNotExist());
+    }
+
+    // Junit test for patch employee REST API - positive scenario
+    @DisplayName("Junit test for patch employee REST API - positive scenario")
+    @Test
+    public void givenChangedFields_whenPatchEmployee_thenReturn204() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee changes = Employee.builder()
+                .email("sdsdccc@google.com.tw")
+                .build();
+        given(employeeService.patchEmployee(eq(employeeId), any(Employee.class))).willReturn(Optional.of(Employee.builder()
+                .id(employeeId)
+                .firstname("Ives")
+                .lastname("He")
+                .email("sdsdccc@google.com.tw")
+                .version(3L)
+                .build()));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}",employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)));
+
+        // then - verify the output
+        response.andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andDo(print());
+    }
+
+    // Junit test for patch employee REST API - negative scenario
+    @DisplayName("Junit test for patch employee REST API - negative scenario")
+    @Test
+    public void givenChangedFields_whenPatchMissingEmployee_thenReturn404() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee changes = Employee.builder()
+                .email("sdsdccc@google.com.tw")
+                .build();
+        given(employeeService.patchEmployee(eq(employeeId), any(Employee.class))).willReturn(Optional.empty());
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}",employeeId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)));
+
+        // then - verify the output
+        response.andExpect(status().isNotFound())
+                .andDo(print());
+    }
+
+    // Junit test for multi-get employees REST API
+    @DisplayName("Junit test for multi-get employees REST API")
+    @Test
+    public void givenIds_whenGetEmployeesByIds_thenReturnEmployeesAndMissingIds() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .id(2L)
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        given(employeeService.getEmployeesByIds(List.of(2L, 5L)))
+                .willReturn(new EmployeeLookupResult(List.of(employee), List.of(5L)));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/api/employees").param("ids", "2,5"));
+
         // then - verify the output
         response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.content.size()", is(1)))
+                .andExpect(jsonPath("$.content[0].email", is(employee.getEmail())))
+                .andExpect(jsonPath("$.missing[0]", is(5)));
+    }
+
+    // Junit test for conditional GET employee by id REST API
+    @DisplayName("Junit test for conditional GET employee by id REST API")
+    @Test
+    public void givenMatchingIfNoneMatch_whenGetEmployeeById_thenReturn304() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee employee = Employee.builder()
+                .id(employeeId)
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .version(3L)
+                .build();
+        given(employeeService.getEmployeeById(employeeId)).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/api/employees/{id}", employeeId)
+                .header("If-None-Match", "\"3\""));
+
+        // then - verify the output 不輸出body
+        response.andExpect(status().isNotModified())
+                .andDo(print())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/employees/{id}", employeeId).header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    // Junit test for conditional update employee REST API with a stale ETag
+    @DisplayName("Junit test for conditional update employee REST API with a stale ETag")
+    @Test
+    public void givenStaleIfMatch_whenUpdateEmployee_thenReturn412() throws Exception {
+        // given - precondition or setup
+        long employeeId = 1L;
+        Employee updatedEmployee = Employee.builder()
+                .firstname("AAA")
+                .lastname("DD")
+                .email("sdsdccc@google.com.tw")
+                .build();
+        given(employeeService.updateEmployee(eq(employeeId), any(Employee.class), eq(2L)))
+                .willThrow(new OptimisticLockingFailureException("stale"));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(put("/api/employees/{id}",employeeId)
+                .header("If-Match", "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(updatedEmployee)));
+
+        // then - verify the output
+        response.andExpect(status().isPreconditionFailed())
                 .andDo(print());
+        mockMvc.perform(put("/api/employees/{id}",employeeId)
+                        .header("If-Match", "not-an-etag")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(updatedEmployee)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    // Junit test for combined list query parameters
+    @DisplayName("Junit test for combined list query parameters")
+    @Test
+    public void givenConflictingQueryParameters_whenGetEmployees_thenReturnBadRequest() throws Exception {
+        // given - precondition or setup
+
+        // when - action or the behavior that we are going test ids與limit分別對應不同的handler
+        ResultActions response = mockMvc.perform(get("/api/employees")
+                .param("ids", "1,2")
+                .param("limit", "10"));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/employees").param("email", "ivesxxx@google.com.tw").param("stream", "true"))
+                .andExpect(status().isBadRequest());
+        verifyNoInteractions(employeeService);
     }
 }
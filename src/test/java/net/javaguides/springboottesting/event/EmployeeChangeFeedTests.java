@@ -0,0 +1,191 @@
+package net.javaguides.springboottesting.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.model.Employee;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeChangeFeedTests {
+
+    private EmployeeChangeFeed changeFeed;
+
+    // blocks the first delivery so later changes pile up in the subscriber's buffer
+    private CountDownLatch firstDelivery;
+    private CountDownLatch release;
+    private BlockingQueue<List<EmployeeChangeFeed.Change>> deliveries;
+    private CountDownLatch dropped;
+
+    @BeforeEach
+    public void setup(){
+        EmployeeChangeFeedProperties properties = new EmployeeChangeFeedProperties();
+        properties.setBufferSize(2);
+        properties.setHeartbeatInterval(Duration.ZERO);
+        changeFeed = new EmployeeChangeFeed(new ObjectMapper(), properties);
+        changeFeed.start();
+
+        firstDelivery = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        deliveries = new LinkedBlockingQueue<>();
+        dropped = new CountDownLatch(1);
+        changeFeed.subscribe(new EmployeeChangeFeed.Subscriber() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void onChanges(List<EmployeeChangeFeed.Change> changes) {
+                deliveries.add(changes);
+                firstDelivery.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+
+            @Override
+            public void onDropped() {
+                dropped.countDown();
+            }
+        });
+    }
+
+    @AfterEach
+    public void tearDown(){
+        release.countDown();
+        changeFeed.shutdown();
+    }
+
+    // Junit test for coalescing unsent changes of the same employee
+    @DisplayName("Junit test for coalescing unsent changes of the same employee")
+    @Test
+    public void givenSlowSubscriber_whenSameEmployeeChangesTwice_thenDeliverOneMergedChange() throws Exception {
+        // given - precondition or setup
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.created(employee(1L, "Ives", "He", 0L)));
+        assertThat(firstDelivery.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when - action or the behavior that we are going test 兩次PATCH只改了不同欄位
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.updated(employee(1L, "Ivan", null, 1L)));
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.updated(employee(1L, null, "Hsu", 2L)));
+        release.countDown();
+
+        // then - verify the output
+        deliveries.take();
+        List<EmployeeChangeFeed.Change> changes = deliveries.poll(5, TimeUnit.SECONDS);
+        assertThat(changes).hasSize(1);
+        EmployeeChangedEvent event = changes.get(0).getEvent();
+        assertThat(event.getType()).isEqualTo(EmployeeChangedEvent.Type.UPDATED);
+        assertThat(event.getEmployee().getFirstname()).isEqualTo("Ivan");
+        assertThat(event.getEmployee().getLastname()).isEqualTo("Hsu");
+        assertThat(event.getEmployee().getVersion()).isEqualTo(2L);
+        assertThat(changes.get(0).getData()).contains("\"firstname\":\"Ivan\"", "\"lastname\":\"Hsu\"");
+        assertThat(changeFeed.getCoalescedCount()).isEqualTo(1);
+    }
+
+    // Junit test for dropping a subscriber whose buffer overflows
+    @DisplayName("Junit test for dropping a subscriber whose buffer overflows")
+    @Test
+    public void givenSlowSubscriber_whenBufferOverflows_thenDropSubscriber() throws Exception {
+        // given - precondition or setup
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.created(employee(1L, "Ives", "He", 0L)));
+        assertThat(firstDelivery.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // when - action or the behavior that we are going test buffer只容得下兩個不同id
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.deleted(2L));
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.deleted(3L));
+        changeFeed.onEmployeeChanged(EmployeeChangedEvent.deleted(4L));
+
+        // then - verify the output
+        assertThat(dropped.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(changeFeed.getSubscriberCount()).isZero();
+        assertThat(changeFeed.getDroppedCount()).isEqualTo(1);
+    }
+
+    private static Employee employee(long id, String firstname, String lastname, Long version){
+        return Employee.builder().id(id).firstname(firstname).lastname(lastname).version(version).build();
+    }
+
+    // Junit test for disconnecting a subscriber that stops reading
+    @DisplayName("Junit test for disconnecting a subscriber that stops reading")
+    @Test
+    public void givenUnwritableSubscriber_whenSendTimeoutPasses_thenDisconnectOnlyThatSubscriber() throws Exception {
+        // given - precondition or setup 另一個feed: 一個讀不動的subscriber, 一個正常的subscriber
+        EmployeeChangeFeedProperties properties = new EmployeeChangeFeedProperties();
+        properties.setHeartbeatInterval(Duration.ZERO);
+        properties.setDispatcherThreads(1);
+        properties.setSendTimeout(Duration.ofMillis(200));
+        EmployeeChangeFeed feed = new EmployeeChangeFeed(new ObjectMapper(), properties);
+        feed.start();
+        CountDownLatch stalledDropped = new CountDownLatch(1);
+        BlockingQueue<List<EmployeeChangeFeed.Change>> received = new LinkedBlockingQueue<>();
+        feed.subscribe(new EmployeeChangeFeed.Subscriber() {
+            @Override
+            public boolean isReady() {
+                return false;
+            }
+
+            @Override
+            public void onChanges(List<EmployeeChangeFeed.Change> changes) {
+                throw new IllegalStateException("not writable");
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+
+            @Override
+            public void onDropped() {
+                stalledDropped.countDown();
+            }
+        });
+        feed.subscribe(new EmployeeChangeFeed.Subscriber() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void onChanges(List<EmployeeChangeFeed.Change> changes) {
+                received.add(changes);
+            }
+
+            @Override
+            public void onHeartbeat() {
+            }
+
+            @Override
+            public void onDropped() {
+            }
+        });
+
+        try {
+            // when - action or the behavior that we are going test
+            feed.onEmployeeChanged(EmployeeChangedEvent.deleted(1L));
+
+            // then - verify the output 只有一條dispatcher thread, 正常的subscriber仍立即收到
+            assertThat(received.poll(5, TimeUnit.SECONDS)).hasSize(1);
+            assertThat(stalledDropped.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(feed.getSubscriberCount()).isEqualTo(1);
+            assertThat(feed.getTimedOutCount()).isEqualTo(1);
+            assertThat(feed.getDroppedCount()).isZero();
+        } finally {
+            feed.shutdown();
+        }
+    }
+}
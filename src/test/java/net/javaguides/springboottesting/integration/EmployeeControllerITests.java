@@ -1,34 +1,72 @@
 package net.javaguides.springboottesting.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import net.javaguides.springboottesting.exception.ResourceNotFoundException;
 import net.javaguides.springboottesting.model.Employee;
 import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.hamcrest.CoreMatchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT) // 整合測試
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, // 整合測試
+        properties = {"employee.metrics.hibernate-statistics=true", // hibernate.* metrics
+                "employee.metrics.connection-hold-time=true"}) // jdbc.connection.hold, /actuator/connectionhold
 @AutoConfigureMockMvc
 public class EmployeeControllerITests {
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.parseMediaType("application/cbor");
+    private static final MediaType PROTOBUF = MediaType.parseMediaType("application/x-protobuf");
+
+    @LocalServerPort
+    private int port;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -38,10 +76,14 @@ public class EmployeeControllerITests {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
     @BeforeEach
     void setup(){
         // 執行每段測試前,清空資料
         employeeRepository.deleteAll();
+        searchIndex.clear();
     }
 
     // Junit test for Create employee REST API
@@ -171,7 +213,9 @@ public class EmployeeControllerITests {
                 .andDo(print())
                 .andExpect(jsonPath("$.firstname",is(updatedEmployee.getFirstname())))
                 .andExpect(jsonPath("$.lastname",is(updatedEmployee.getLastname())))
-                .andExpect(jsonPath("$.email",is(updatedEmployee.getEmail())));
+                .andExpect(jsonPath("$.email",is(updatedEmployee.getEmail())))
+                .andExpect(jsonPath("$.version",is(1)))
+                .andExpect(header().string("ETag", "\"1\""));
     }
 
     // Junit test for update employee REST API - negative scenario
@@ -203,4 +247,553 @@ public class EmployeeControllerITests {
         response.andExpect(status().isNotFound())
                 .andDo(print());
     }
+
+    // Junit test for streaming employees as NDJSON REST API
+    @DisplayName("Junit test for streaming employees as NDJSON REST API")
+    @Test
+    public void givenListOfEmployee_whenStreamEmployeesAsNdjson_thenReturnOneEmployeePerLine() throws Exception {
+        // given - precondition or setup
+        List<Employee> listOfEmployees = new ArrayList<>();
+        listOfEmployees.add(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        listOfEmployees.add(Employee.builder()
+                .firstname("DDD")
+                .lastname("XXX")
+                .email("iDvaxxx@google.com.tw")
+                .build());
+        employeeRepository.saveAll(listOfEmployees);
+
+        // when - action or the behavior that we are going test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then - verify the output
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON));
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(listOfEmployees.size());
+        assertThat(objectMapper.readValue(lines[0], Employee.class).getEmail())
+                .isEqualTo(listOfEmployees.get(0).getEmail());
+    }
+
+    // Junit test for streaming employees as JSON array REST API
+    @DisplayName("Junit test for streaming employees as JSON array REST API")
+    @Test
+    public void givenListOfEmployee_whenStreamEmployeesAsJsonArray_thenReturnEmployeesList() throws Exception {
+        // given - precondition or setup
+        List<Employee> listOfEmployees = new ArrayList<>();
+        listOfEmployees.add(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        listOfEmployees.add(Employee.builder()
+                .firstname("DDD")
+                .lastname("XXX")
+                .email("iDvaxxx@google.com.tw")
+                .build());
+        employeeRepository.saveAll(listOfEmployees);
+
+        // when - action or the behavior that we are going test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then - verify the output
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(listOfEmployees.size())));
+    }
+
+    // Junit test for bulk create employees REST API
+    @DisplayName("Junit test for bulk create employees REST API")
+    @Test
+    public void givenEmployeesList_whenCreateEmployees_thenReturnPerItemResult() throws Exception {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        List<Employee> listOfEmployees = new ArrayList<>();
+        listOfEmployees.add(Employee.builder()
+                .firstname("DDD")
+                .lastname("XXX")
+                .email("iDvaxxx@google.com.tw")
+                .build());
+        listOfEmployees.add(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(listOfEmployees)));
+
+        // then - verify the output
+        response.andExpect(status().isMultiStatus())
+                .andDo(print())
+                .andExpect(jsonPath("$.succeeded", is(1)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.items[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.items[1].status", is("FAILED")));
+        assertThat(employeeRepository.count()).isEqualTo(2);
+    }
+
+    // Junit test for Create employee REST API - duplicate email
+    @DisplayName("Junit test for Create employee REST API - duplicate email")
+    @Test
+    public void givenExistingEmail_whenCreateEmployee_thenThrowsException() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that we are going test
+        Throwable thrown = catchThrowable(() -> mockMvc.perform(post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee))));
+
+        // then - verify the output 由unique index擋下重複的email
+        assertThat(thrown).hasCauseInstanceOf(ResourceNotFoundException.class);
+        assertThat(employeeRepository.count()).isEqualTo(1);
+    }
+
+    // Junit test for patch employee REST API
+    @DisplayName("Junit test for patch employee REST API")
+    @Test
+    public void givenChangedFields_whenPatchEmployee_thenOnlyChangedFieldsAreUpdated() throws Exception {
+        // given - precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        employeeRepository.save(savedEmployee);
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(patch("/api/employees/{id}",savedEmployee.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"lastname\":\"DD\"}"));
+
+        // then - verify the output
+        response.andExpect(status().isNoContent())
+                .andExpect(header().string("ETag", "\"1\""))
+                .andDo(print());
+        mockMvc.perform(get("/api/employees/{id}",savedEmployee.getId()))
+                .andExpect(jsonPath("$.firstname",is("Ives")))
+                .andExpect(jsonPath("$.lastname",is("DD")))
+                .andExpect(jsonPath("$.version",is(1)));
+    }
+
+    // Junit test for delete employee REST API
+    @DisplayName("Junit test for delete employee REST API")
+    @Test
+    public void givenEmployeeId_whenDeleteEmployee_thenReturn204AndThen404() throws Exception {
+        // given - precondition or setup
+        Employee savedEmployee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        employeeRepository.save(savedEmployee);
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(delete("/api/employees/{id}",savedEmployee.getId()));
+        ResultActions secondResponse = mockMvc.perform(delete("/api/employees/{id}",savedEmployee.getId()));
+
+        // then - verify the output
+        response.andExpect(status().isNoContent());
+        secondResponse.andExpect(status().isNotFound());
+        assertThat(employeeRepository.count()).isEqualTo(0);
+    }
+
+    // Junit test for search employees REST API
+    @DisplayName("Junit test for search employees REST API")
+    @Test
+    public void givenCreatedEmployees_whenSearchEmployees_thenReturnMatchesUntilDeleted() throws Exception {
+        // given - precondition or setup 經由API新增, 索引才會增量更新
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        MvcResult created = mockMvc.perform(post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)))
+                .andReturn();
+        long id = objectMapper.readValue(created.getResponse().getContentAsString(), Employee.class).getId();
+        mockMvc.perform(post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Employee.builder()
+                        .firstname("Tony").lastname("Stark").email("tony@gmail.com").build())));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/api/employees/search").param("q", "iv he"));
+        mockMvc.perform(delete("/api/employees/{id}", id));
+        ResultActions afterDelete = mockMvc.perform(get("/api/employees/search").param("q", "iv"));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].email", is(employee.getEmail())));
+        afterDelete.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(0)));
+    }
+
+    // Junit test for employee metrics exposed through actuator
+    @DisplayName("Junit test for employee metrics exposed through actuator")
+    @Test
+    public void givenEmployeeRequests_whenGetMetrics_thenReturnServiceAndHibernateMeters() throws Exception {
+        // given - precondition or setup
+        Employee savedEmployee = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        mockMvc.perform(get("/api/employees/{id}", savedEmployee.getId()));
+        mockMvc.perform(get("/api/employees/{id}", savedEmployee.getId() + 1));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/actuator/metrics/employee.service")
+                .param("tag", "method:getEmployeeById")
+                .param("tag", "outcome:NOT_FOUND"));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.measurements[0].statistic", is("COUNT")));
+        mockMvc.perform(get("/actuator/metrics/hibernate.statements"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/spring.data.repository.invocations"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/hikaricp.connections.active"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:employees")
+                        .param("tag", "result:hit"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/cache.size").param("tag", "cache:employees"))
+                .andExpect(status().isOk());
+    }
+
+    // Junit test for CSV import REST API
+    @DisplayName("Junit test for CSV import REST API")
+    @Test
+    public void givenCsvBody_whenImportEmployees_thenCreateRowsAndReportDuplicates() throws Exception {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        String csv = "firstname,lastname,email\n"
+                + "Ives,He,ivesxxx@google.com.tw\n"
+                + "Tony,Stark,tony@gmail.com\n"
+                + "Mary,Lin,mary@gmail.com\n"
+                + "Mary,Lin,mary@gmail.com\n";
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/import")
+                .contentType("text/csv")
+                .content(csv));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(4)))
+                .andExpect(jsonPath("$.created", is(2)))
+                .andExpect(jsonPath("$.failed", is(2)))
+                .andExpect(jsonPath("$.errors[0].line", is(2)))
+                .andExpect(jsonPath("$.errors[1].line", is(5)));
+        assertThat(employeeRepository.count()).isEqualTo(3);
+    }
+
+    // Junit test for NDJSON import REST API
+    @DisplayName("Junit test for NDJSON import REST API")
+    @Test
+    public void givenNdjsonBody_whenImportEmployees_thenCreateRows() throws Exception {
+        // given - precondition or setup
+        String ndjson = "{\"firstname\":\"Tony\",\"lastname\":\"Stark\",\"email\":\"tony@gmail.com\"}\n"
+                + "{\"firstname\":\"Mary\",\"lastname\":\"Lin\",\"email\":\"mary@gmail.com\"}\n";
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/import")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(ndjson));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(2)))
+                .andExpect(jsonPath("$.failed", is(0)));
+        assertThat(employeeRepository.findByEmail("mary@gmail.com")).isPresent();
+    }
+
+    // Junit test for CSV export REST API
+    @DisplayName("Junit test for CSV export REST API")
+    @Test
+    public void givenListOfEmployees_whenExportCsv_thenStreamRowsInIdOrder() throws Exception {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder().firstname("Ives").lastname("He").email("ivesxxx@google.com.tw").build());
+        employeeRepository.save(Employee.builder().firstname("Tony").lastname("Stark, Jr").email("tony@gmail.com").build());
+
+        // when - action or the behavior that we are going test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export").param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then - verify the output 含逗號的欄位會加上引號
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"));
+        String[] lines = mvcResult.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).isEqualTo("id,firstname,lastname,email");
+        assertThat(lines[2]).endsWith(",Tony,\"Stark, Jr\",tony@gmail.com");
+    }
+
+    // Junit test for gzip NDJSON export REST API
+    @DisplayName("Junit test for gzip NDJSON export REST API")
+    @Test
+    public void givenListOfEmployees_whenExportGzipNdjson_thenReturnCompressedLines() throws Exception {
+        // given - precondition or setup
+        employeeRepository.save(Employee.builder().firstname("Ives").lastname("He").email("ivesxxx@google.com.tw").build());
+
+        // when - action or the behavior that we are going test
+        MvcResult mvcResult = mockMvc.perform(get("/api/employees/export")
+                        .param("format", "ndjson")
+                        .param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // then - verify the output
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"));
+        byte[] gzipped = mvcResult.getResponse().getContentAsByteArray();
+        String ndjson = new String(new GZIPInputStream(new ByteArrayInputStream(gzipped)).readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(objectMapper.readValue(ndjson.trim(), Employee.class).getEmail()).isEqualTo("ivesxxx@google.com.tw");
+        mockMvc.perform(get("/api/employees/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Junit test for multi-get lookup REST API
+    @DisplayName("Junit test for multi-get lookup REST API")
+    @Test
+    public void givenIdsBody_whenLookupEmployees_thenReturnRequestedOrder() throws Exception {
+        // given - precondition or setup
+        Employee first = employeeRepository.save(Employee.builder().firstname("Ives").lastname("He").email("ivesxxx@google.com.tw").build());
+        Employee second = employeeRepository.save(Employee.builder().firstname("Tony").lastname("Stark").email("tony@gmail.com").build());
+        long missingId = second.getId() + 100;
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(second.getId(), missingId, first.getId()))));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].email", is(second.getEmail())))
+                .andExpect(jsonPath("$.content[1].email", is(first.getEmail())))
+                .andExpect(jsonPath("$.missing.size()", is(1)));
+    }
+
+    // Junit test for optimistic concurrency with ETag / If-Match
+    @DisplayName("Junit test for optimistic concurrency with ETag / If-Match")
+    @Test
+    public void givenTwoWritersWithSameETag_whenUpdateEmployee_thenSecondGets412() throws Exception {
+        // given - precondition or setup
+        Employee savedEmployee = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        String etag = mockMvc.perform(get("/api/employees/{id}", savedEmployee.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        Employee change = Employee.builder().firstname("Ram").lastname("Jadhav").email("ram@gmail.com").build();
+
+        // when - action or the behavior that we are going test 兩個client拿同一個ETag更新
+        ResultActions first = mockMvc.perform(put("/api/employees/{id}", savedEmployee.getId())
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(change)));
+        ResultActions second = mockMvc.perform(put("/api/employees/{id}", savedEmployee.getId())
+                .header("If-Match", etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(change.toBuilder().firstname("Lost").build())));
+
+        // then - verify the output
+        String newEtag = first.andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertThat(newEtag).isNotEqualTo(etag);
+        second.andExpect(status().isPreconditionFailed());
+        mockMvc.perform(get("/api/employees/{id}", savedEmployee.getId()).header("If-None-Match", newEtag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(patch("/api/employees/{id}", savedEmployee.getId())
+                        .header("If-Match", etag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastname\":\"Lost\"}"))
+                .andExpect(status().isPreconditionFailed());
+        assertThat(employeeRepository.findById(savedEmployee.getId()).get().getFirstname()).isEqualTo("Ram");
+    }
+
+    // Junit test for connection hold time report exposed through actuator
+    @DisplayName("Junit test for connection hold time report exposed through actuator")
+    @Test
+    public void givenEmployeeRequests_whenGetConnectionHoldReport_thenReturnHoldTimePerEndpoint() throws Exception {
+        // given - precondition or setup
+        Employee savedEmployee = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        mockMvc.perform(get("/api/employees/{id}", savedEmployee.getId() + 1));
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(get("/actuator/connectionhold"));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.endpoints[?(@.uri == '/api/employees/{id}' && @.method == 'GET')]").exists());
+        mockMvc.perform(get("/actuator/metrics/jdbc.connection.hold")
+                        .param("tag", "uri:/api/employees/{id}"))
+                .andExpect(status().isOk());
+    }
+
+    // Junit test for Smile/CBOR content negotiation
+    @DisplayName("Junit test for Smile/CBOR content negotiation")
+    @Test
+    public void givenSmileBody_whenCreateAndGetWithBinaryAccept_thenRespondInRequestedFormat() throws Exception {
+        // given - precondition or setup
+        ObjectMapper smileMapper = new SmileMapper();
+        ObjectMapper cborMapper = new CBORMapper();
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+
+        // when - action or the behavior that we are going test
+        MvcResult created = mockMvc.perform(post("/api/employees")
+                        .contentType(SMILE)
+                        .accept(CBOR)
+                        .content(smileMapper.writeValueAsBytes(employee)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(CBOR))
+                .andReturn();
+        MvcResult all = mockMvc.perform(get("/api/employees").accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+
+        // then - verify the output
+        JsonNode body = cborMapper.readTree(created.getResponse().getContentAsByteArray());
+        assertThat(body.get("email").asText()).isEqualTo(employee.getEmail());
+        JsonNode list = smileMapper.readTree(all.getResponse().getContentAsByteArray());
+        assertThat(list.get(0).get("id").asLong()).isEqualTo(body.get("id").asLong());
+        // 沒有Accept時仍是JSON
+        mockMvc.perform(get("/api/employees"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    // Junit test for protobuf content negotiation
+    @DisplayName("Junit test for protobuf content negotiation")
+    @Test
+    public void givenProtobufBody_whenCreateAndListAsProtobuf_thenDecodeWithPublishedSchema() throws Exception {
+        // given - precondition or setup
+        NativeProtobufSchema schema;
+        try (InputStream in = new ClassPathResource("proto/employee.proto").getInputStream()) {
+            schema = ProtobufSchemaLoader.std.loadNative(in, true);
+        }
+        ProtobufMapper protobufMapper = new ProtobufMapper();
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        byte[] request = protobufMapper.writer(schema.forType("Employee")).writeValueAsBytes(employee);
+
+        // when - action or the behavior that we are going test
+        MvcResult created = mockMvc.perform(post("/api/employees")
+                        .contentType(PROTOBUF)
+                        .accept(PROTOBUF)
+                        .content(request))
+                .andExpect(status().isCreated())
+                .andReturn();
+        MvcResult all = mockMvc.perform(get("/api/employees").accept(PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PROTOBUF))
+                .andReturn();
+
+        // then - verify the output
+        JsonNode body = protobufMapper.readerFor(JsonNode.class).with(schema.forType("Employee"))
+                .readValue(created.getResponse().getContentAsByteArray());
+        assertThat(body.get("email").asText()).isEqualTo(employee.getEmail());
+        assertThat(body.get("version").asLong()).isZero();
+        JsonNode list = protobufMapper.readerFor(JsonNode.class).with(schema.forType("EmployeeList"))
+                .readValue(all.getResponse().getContentAsByteArray());
+        assertThat(list.get("employees")).hasSize(1);
+        assertThat(list.get("employees").get(0).get("id").asLong()).isEqualTo(body.get("id").asLong());
+    }
+
+    // Junit test for the server-sent change feed
+    @DisplayName("Junit test for the server-sent change feed")
+    @Test
+    public void givenOpenChangeStream_whenCreateEmployee_thenStreamCreatedEvent() throws Exception {
+        // given - precondition or setup
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/employees/stream"))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        HttpResponse<Stream<String>> stream = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+
+        // when - action or the behavior that we are going test
+        mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated());
+
+        // then - verify the output 讀到第一個data行為止
+        List<String> lines = CompletableFuture.supplyAsync(() -> {
+            List<String> received = new ArrayList<>();
+            Iterator<String> iterator = stream.body().iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                received.add(line);
+                if (line.startsWith("data:")) {
+                    break;
+                }
+            }
+            return received;
+        }).get(10, TimeUnit.SECONDS);
+        stream.body().close();
+        assertThat(stream.statusCode()).isEqualTo(200);
+        assertThat(stream.headers().firstValue(HttpHeaders.CONTENT_TYPE)).hasValueSatisfying(
+                contentType -> assertThat(contentType).startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertThat(lines).contains("event:created");
+        JsonNode event = objectMapper.readTree(lines.get(lines.size() - 1).substring("data:".length()));
+        assertThat(event.get("type").asText()).isEqualTo("CREATED");
+        assertThat(event.get("employee").get("email").asText()).isEqualTo(employee.getEmail());
+    }
 }
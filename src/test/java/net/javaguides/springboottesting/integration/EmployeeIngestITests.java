@@ -0,0 +1,121 @@
+package net.javaguides.springboottesting.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.dto.IngestStatus;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "employee.ingest.enabled=true") // 整合測試
+@AutoConfigureMockMvc
+public class EmployeeIngestITests {
+
+    @TempDir
+    static Path journalDir;
+
+    @DynamicPropertySource
+    static void ingestProperties(DynamicPropertyRegistry registry){
+        registry.add("employee.ingest.journal-dir", () -> journalDir.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup(){
+        // 執行每段測試前,清空資料
+        employeeRepository.deleteAll();
+    }
+
+    // Junit test for write-behind ingest REST API
+    @DisplayName("Junit test for write-behind ingest REST API")
+    @Test
+    public void givenEmployeeObject_whenIngestEmployee_thenAcceptAndCommitLater() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists("Location"))
+                .andExpect(jsonPath("$.state", is("PENDING")));
+        String trackingId = objectMapper.readValue(response.andReturn().getResponse().getContentAsString(),
+                IngestStatus.class).getTrackingId();
+
+        IngestStatus status = null;
+        for (int i = 0; i < 500; i++) {
+            status = objectMapper.readValue(mockMvc.perform(get("/api/employees/ingest/{trackingId}", trackingId))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), IngestStatus.class);
+            if (status.getState() != IngestStatus.State.PENDING) {
+                break;
+            }
+            Thread.sleep(10);
+        }
+        assertThat(status.getState()).isEqualTo(IngestStatus.State.CREATED);
+        assertThat(employeeRepository.findById(status.getId())).isPresent();
+        mockMvc.perform(get("/api/employees/ingest"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.queued", is(0)));
+    }
+
+    // Junit test for write-behind ingest REST API (invalid employee)
+    @DisplayName("Junit test for write-behind ingest REST API (invalid employee)")
+    @Test
+    public void givenEmployeeWithoutEmail_whenIngestEmployee_thenReturn400() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .build();
+
+        // when - action or the behavior that we are going test
+        ResultActions response = mockMvc.perform(post("/api/employees/ingest")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee)));
+
+        // then - verify the output
+        response.andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.state", is("FAILED")))
+                .andExpect(jsonPath("$.error", is("email is required")));
+    }
+}
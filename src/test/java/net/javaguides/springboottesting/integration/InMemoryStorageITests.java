@@ -0,0 +1,282 @@
+package net.javaguides.springboottesting.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.config.StorageProperties;
+import net.javaguides.springboottesting.exception.ResourceNotFoundException;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
+import net.javaguides.springboottesting.service.impl.InMemoryEmployeeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.hamcrest.CoreMatchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "employee.storage.type=memory") // 整合測試
+@AutoConfigureMockMvc
+public class InMemoryStorageITests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private InMemoryEmployeeService employeeService;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private EmployeeSearchIndex searchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setup() throws InterruptedException {
+        // 執行每段測試前,清空資料 (記憶體是真實來源, 必須經由service刪除)
+        employeeService.deleteEmployees(employeeService.getAllEmployees().stream()
+                .map(view -> view.getId())
+                .collect(Collectors.toList()));
+        employeeService.flush(Duration.ofSeconds(10));
+        employeeRepository.deleteAll();
+    }
+
+    // Junit test for in-memory storage write-behind to the database
+    @DisplayName("Junit test for in-memory storage write-behind to the database")
+    @Test
+    public void givenMemoryStorage_whenCreateUpdateDelete_thenServedFromMemoryAndPersisted() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        long failedBefore = employeeService.stats().getFailedWrites();
+
+        // when - action or the behavior that we are going test
+        String body = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readValue(body, Employee.class).getId();
+
+        // then - verify the output
+        mockMvc.perform(get("/api/employees/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email", is(employee.getEmail())))
+                .andExpect(jsonPath("$.version", is(0)));
+        Throwable thrown = catchThrowable(() -> mockMvc.perform(post("/api/employees")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(employee))));
+        assertThat(thrown).hasCauseInstanceOf(ResourceNotFoundException.class);
+        assertThat(employeeService.flush(Duration.ofSeconds(10))).isTrue();
+        assertThat(employeeRepository.findById(id)).get()
+                .extracting(Employee::getEmail, Employee::getVersion)
+                .containsExactly(employee.getEmail(), 0L);
+
+        Employee changes = employee.toBuilder().email("ives@gmail.com").build();
+        mockMvc.perform(put("/api/employees/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isOk());
+        assertThat(employeeService.getEmployeeByEmail("ives@gmail.com")).get().extracting(Employee::getVersion).isEqualTo(1L);
+        assertThat(employeeService.getEmployeeByEmail(employee.getEmail())).isEmpty();
+        assertThat(employeeService.flush(Duration.ofSeconds(10))).isTrue();
+        assertThat(employeeRepository.findById(id)).get()
+                .extracting(Employee::getEmail, Employee::getVersion)
+                .containsExactly("ives@gmail.com", 1L);
+
+        mockMvc.perform(delete("/api/employees/{id}", id))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/employees/{id}", id))
+                .andExpect(status().isNotFound());
+        assertThat(employeeService.flush(Duration.ofSeconds(10))).isTrue();
+        assertThat(employeeRepository.existsById(id)).isFalse();
+        assertThat(employeeService.stats().getFailedWrites()).isEqualTo(failedBefore);
+    }
+
+    // Junit test for bulk loading existing rows at startup
+    @DisplayName("Junit test for bulk loading existing rows at startup")
+    @Test
+    public void givenRowsInDatabase_whenStart_thenLoadedAndNewIdsDoNotCollide() throws InterruptedException {
+        // given - precondition or setup
+        Employee existing = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        InMemoryEmployeeService restarted = new InMemoryEmployeeService(employeeRepository, searchIndex, eventPublisher,
+                transactionManager, new StorageProperties());
+
+        // when - action or the behavior that we are going test
+        restarted.start();
+        Employee created;
+        try {
+            created = restarted.saveEmployee(Employee.builder()
+                    .firstname("John")
+                    .lastname("Cena")
+                    .email("cena@gmail.com")
+                    .build());
+            assertThat(restarted.flush(Duration.ofSeconds(10))).isTrue();
+        } finally {
+            restarted.destroy();
+        }
+
+        // then - verify the output
+        assertThat(restarted.getEmployeeByEmail(existing.getEmail())).get()
+                .extracting(Employee::getId).isEqualTo(existing.getId());
+        assertThat(created.getId()).isNotEqualTo(existing.getId());
+        assertThat(employeeRepository.findById(created.getId())).isPresent();
+        assertThat(restarted.stats().getBytesPerEmployee()).isPositive();
+    }
+
+    // Junit test for the in-memory storage actuator report
+    @DisplayName("Junit test for the in-memory storage actuator report")
+    @Test
+    public void givenMemoryStorage_whenGetEmployeeStoreEndpoint_thenReportsBytesPerEmployee() throws Exception {
+        // given - precondition or setup
+        employeeService.saveEmployee(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+
+        // when - action or the behavior that we are going test
+        mockMvc.perform(get("/actuator/employeestore"))
+
+                // then - verify the output
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.employees", is(1)))
+                .andExpect(jsonPath("$.bytesPerEmployee").isNumber());
+    }
+
+    // Junit test for retrying a write that cannot be persisted yet
+    @DisplayName("Junit test for retrying a write that cannot be persisted yet")
+    @Test
+    public void givenConflictingRowInDatabase_whenSaveEmployee_thenRetryUntilPersisted() throws Exception {
+        // given - precondition or setup 直接寫入資料庫的row記憶體看不到, 寫回時違反email unique index
+        Employee conflicting = employeeRepository.save(Employee.builder()
+                .firstname("Tony")
+                .lastname("Stark")
+                .email("ivesxxx@google.com.tw")
+                .build());
+
+        // when - action or the behavior that we are going test
+        Employee created = employeeService.saveEmployee(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+
+        // then - verify the output 衝突存在時寫入保留重試, 移除衝突後寫入
+        assertThat(employeeService.flush(Duration.ofSeconds(1))).isFalse();
+        assertThat(employeeService.stats().getRetryingWrites()).isEqualTo(1);
+        assertThat(employeeService.stats().getFailedWrites()).isPositive();
+        employeeRepository.deleteById(conflicting.getId());
+        assertThat(employeeService.flush(Duration.ofSeconds(10))).isTrue();
+        assertThat(employeeRepository.findById(created.getId())).isPresent();
+        assertThat(employeeService.stats().getRetryingWrites()).isZero();
+        assertThat(employeeService.stats().getPendingWrites()).isZero();
+    }
+
+    // Junit test for a write that can never be persisted
+    @DisplayName("Junit test for a write that can never be persisted")
+    @Test
+    public void givenPoisonedWrite_whenOtherEmployeesAreSaved_thenTheyPersistAndThePoisonedWriteIsGivenUp() throws Exception {
+        // given - precondition or setup 啟動後直接寫入資料庫的row記憶體看不到, 與新增的email衝突, 重試5次 (約1.5秒) 後放棄
+        StorageProperties properties = new StorageProperties();
+        properties.setWriteMaxAttempts(5);
+        InMemoryEmployeeService storage = new InMemoryEmployeeService(employeeRepository, searchIndex, eventPublisher,
+                transactionManager, properties);
+        storage.start();
+        try {
+            employeeRepository.save(Employee.builder()
+                    .firstname("Tony")
+                    .lastname("Stark")
+                    .email("ivesxxx@google.com.tw")
+                    .build());
+            Employee poisoned = storage.saveEmployee(Employee.builder()
+                    .firstname("Ives")
+                    .lastname("He")
+                    .email("ivesxxx@google.com.tw")
+                    .build());
+
+            // when - action or the behavior that we are going test
+            List<Employee> others = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                others.add(storage.saveEmployee(Employee.builder()
+                        .firstname("John")
+                        .lastname("Cena")
+                        .email("cena" + i + "@gmail.com")
+                        .build()));
+            }
+
+            // then - verify the output 其他寫入不等poison的重試
+            long deadline = System.nanoTime() + Duration.ofSeconds(1).toNanos();
+            while (employeeRepository.count() < 1 + others.size() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            for (Employee other : others) {
+                assertThat(employeeRepository.findById(other.getId())).isPresent();
+            }
+            assertThat(storage.stats().getRetryingWrites()).isEqualTo(1);
+            assertThat(storage.flush(Duration.ofSeconds(10))).isTrue();
+            assertThat(storage.stats().getDeadLetteredWrites()).isEqualTo(1);
+            assertThat(storage.stats().getFailedWrites()).isEqualTo(5);
+            assertThat(storage.stats().getRetryingWrites()).isZero();
+            assertThat(storage.stats().getPersistedWrites()).isEqualTo(others.size());
+            assertThat(employeeRepository.findById(poisoned.getId())).isEmpty();
+        } finally {
+            storage.destroy();
+        }
+    }
+
+    // Junit test for in-memory ids next to Hibernate generated ids
+    @DisplayName("Junit test for in-memory ids next to Hibernate generated ids")
+    @Test
+    public void givenHibernateGeneratedIds_whenSaveEmployeesInMemory_thenIdsDoNotCollide() throws InterruptedException {
+        // given - precondition or setup Hibernate先取得一個id區段
+        List<Long> ids = new ArrayList<>();
+        ids.add(employeeRepository.save(Employee.builder().firstname("Ives").lastname("He").email("jpa0@gmail.com").build()).getId());
+
+        // when - action or the behavior that we are going test 兩邊交錯取得新的區段
+        for (int i = 1; i <= Employee.ID_ALLOCATION_SIZE; i++) {
+            ids.add(employeeService.saveEmployee(Employee.builder().firstname("Dada").lastname("He").email("memory" + i + "@gmail.com").build()).getId());
+            ids.add(employeeRepository.save(Employee.builder().firstname("Tony").lastname("He").email("jpa" + i + "@gmail.com").build()).getId());
+        }
+        assertThat(employeeService.flush(Duration.ofSeconds(10))).isTrue();
+
+        // then - verify the output
+        assertThat(ids).doesNotHaveDuplicates();
+        assertThat(employeeRepository.count()).isEqualTo(ids.size());
+        assertThat(employeeService.stats().getDeadLetteredWrites()).isZero();
+    }
+}
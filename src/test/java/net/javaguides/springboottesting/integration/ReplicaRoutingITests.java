@@ -0,0 +1,140 @@
+package net.javaguides.springboottesting.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.datasource.ReplicaRoutingDataSource;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import net.javaguides.springboottesting.datasource.ReadYourWritesFilter;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.servlet.http.Cookie;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.cookie;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"employee.cache.type=none", "employee.datasource.routing.read-your-writes-window=300ms"}) // 整合測試
+@AutoConfigureMockMvc
+@ActiveProfiles("replicas")
+public class ReplicaRoutingITests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setup(){
+        // 執行每段測試前,清空資料
+        employeeRepository.deleteAll();
+    }
+
+    // Junit test for read/write datasource routing
+    @DisplayName("Junit test for read/write datasource routing")
+    @Test
+    public void givenReplicas_whenWriteThenRead_thenReadYourWritesOnPrimaryAndLaterReadsOnReplicas() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        Map<String, Long> before = routingDataSource.routedCounts();
+
+        // when - action or the behavior that we are going test 寫入的client帶著回傳的cookie繼續讀取
+        MockHttpServletResponse created = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andExpect(cookie().exists(ReadYourWritesFilter.COOKIE_NAME))
+                .andReturn().getResponse();
+        long id = objectMapper.readValue(created.getContentAsString(), Employee.class).getId();
+        Cookie primaryUntil = created.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        mockMvc.perform(get("/api/employees/{id}", id).cookie(primaryUntil)).andExpect(status().isOk());
+        Map<String, Long> afterWrite = routingDataSource.routedCounts();
+
+        Thread.sleep(400);
+        mockMvc.perform(get("/api/employees/{id}", id).cookie(primaryUntil)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/employees").cookie(primaryUntil)).andExpect(status().isOk());
+        Map<String, Long> afterWindow = routingDataSource.routedCounts();
+
+        // then - verify the output 寫入後的讀取仍走primary, 超過window之後輪流分配給兩個replica
+        assertThat(afterWrite.get("replica-1") + afterWrite.get("replica-2"))
+                .isEqualTo(before.get("replica-1") + before.get("replica-2"));
+        assertThat(afterWrite.get(ReplicaRoutingDataSource.PRIMARY)).isGreaterThanOrEqualTo(before.get(ReplicaRoutingDataSource.PRIMARY) + 2);
+        assertThat(afterWindow.get("replica-1") - afterWrite.get("replica-1")).isEqualTo(1);
+        assertThat(afterWindow.get("replica-2") - afterWrite.get("replica-2")).isEqualTo(1);
+        assertThat(afterWindow.get(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(afterWrite.get(ReplicaRoutingDataSource.PRIMARY));
+    }
+
+    // Junit test for read/write datasource routing with two clients
+    @DisplayName("Junit test for read/write datasource routing with two clients")
+    @Test
+    public void givenClientAWrites_whenClientBReads_thenClientBStillReadsFromReplica() throws Exception {
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+
+        // when - action or the behavior that we are going test client A新增後, 沒有cookie的client B立刻讀取
+        String body = mockMvc.perform(post("/api/employees")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(employee)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readValue(body, Employee.class).getId();
+        Map<String, Long> afterWrite = routingDataSource.routedCounts();
+        mockMvc.perform(get("/api/employees/{id}", id)).andExpect(status().isOk());
+        Map<String, Long> afterRead = routingDataSource.routedCounts();
+
+        // then - verify the output client A的window不影響client B
+        assertThat(afterRead.get("replica-1") + afterRead.get("replica-2"))
+                .isEqualTo(afterWrite.get("replica-1") + afterWrite.get("replica-2") + 1);
+        assertThat(afterRead.get(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(afterWrite.get(ReplicaRoutingDataSource.PRIMARY));
+    }
+
+    // Junit test for read/write datasource routing with a forged cookie
+    @DisplayName("Junit test for read/write datasource routing with a forged cookie")
+    @Test
+    public void givenCookieFarInTheFuture_whenRead_thenReadsFromReplica() throws Exception {
+        // given - precondition or setup client自行把cookie改成很久以後
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        Cookie forged = new Cookie(ReadYourWritesFilter.COOKIE_NAME, Long.toString(Long.MAX_VALUE));
+        Map<String, Long> before = routingDataSource.routedCounts();
+
+        // when - action or the behavior that we are going test
+        mockMvc.perform(get("/api/employees/{id}", employee.getId()).cookie(forged)).andExpect(status().isOk());
+        Map<String, Long> after = routingDataSource.routedCounts();
+
+        // then - verify the output 不合理的cookie被忽略, 讀取仍走replica
+        assertThat(after.get("replica-1") + after.get("replica-2"))
+                .isEqualTo(before.get("replica-1") + before.get("replica-2") + 1);
+        assertThat(after.get(ReplicaRoutingDataSource.PRIMARY)).isEqualTo(before.get(ReplicaRoutingDataSource.PRIMARY));
+    }
+}
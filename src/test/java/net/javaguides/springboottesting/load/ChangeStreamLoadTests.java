@@ -0,0 +1,133 @@
+package net.javaguides.springboottesting.load;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import net.javaguides.springboottesting.event.EmployeeChangeFeed;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 同時開啟load.subscribers (預設2000) 條GET /api/employees/stream, 只用8條Tomcat thread,
+ * 新增load.changes筆資料後量測每個subscriber收到事件的延遲
+ * 執行方式: ./mvnw -Pload test -Dtest=ChangeStreamLoadTests -Dload.subscribers=5000
+ */
+@Tag("load")
+public class ChangeStreamLoadTests {
+
+    private static final int SUBSCRIBERS = Integer.getInteger("load.subscribers", 2000);
+    private static final int CHANGES = Integer.getInteger("load.changes", 100);
+    private static final int TOMCAT_THREADS = 8;
+
+    // Junit test for fan-out of the change stream to many subscribers
+    @DisplayName("Junit test for fan-out of the change stream to many subscribers")
+    @Test
+    public void givenManySubscribers_whenEmployeesChange_thenEverySubscriberReceivesEveryChange() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID(),
+                        "--logging.level.root=WARN",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--server.tomcat.max-connections=" + (SUBSCRIBERS + 100))) {
+            // given - precondition or setup
+            EmployeeChangeFeed changeFeed = context.getBean(EmployeeChangeFeed.class);
+            EmployeeService employeeService = context.getBean(EmployeeService.class);
+            URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                    + "/api/employees/stream");
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+            AtomicLongArray publishedAt = new AtomicLongArray(CHANGES + 1);
+            LatencyRecorder recorder = new LatencyRecorder();
+            CountDownLatch delivered = new CountDownLatch(SUBSCRIBERS * CHANGES);
+            List<CompletableFuture<HttpResponse<Void>>> streams = new ArrayList<>(SUBSCRIBERS);
+            for (int i = 0; i < SUBSCRIBERS; i++) {
+                streams.add(client.sendAsync(HttpRequest.newBuilder(uri).build(),
+                        HttpResponse.BodyHandlers.fromLineSubscriber(new EventCounter(publishedAt, recorder, delivered))));
+            }
+            long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+            while (changeFeed.getSubscriberCount() < SUBSCRIBERS && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(changeFeed.getSubscriberCount()).isEqualTo(SUBSCRIBERS);
+
+            // when - action or the behavior that we are going test 事件序號從1開始, 依新增順序
+            for (int i = 1; i <= CHANGES; i++) {
+                publishedAt.set(i, System.nanoTime());
+                employeeService.saveEmployee(Employee.builder()
+                        .firstname("Load")
+                        .lastname("Stream" + i)
+                        .email("stream" + i + "@load.test")
+                        .build());
+            }
+            boolean complete = delivered.await(2, TimeUnit.MINUTES);
+
+            // then - verify the output
+            LatencyRecorder.Snapshot snapshot = recorder.snapshot();
+            System.out.printf("%d subscribers x %d changes on %d Tomcat threads, %d JVM threads: delivered=%d dropped=%d "
+                            + "p50=%.1fms p99=%.1fms max=%.1fms%n",
+                    SUBSCRIBERS, CHANGES, TOMCAT_THREADS, ManagementFactory.getThreadMXBean().getThreadCount(),
+                    snapshot.count(), changeFeed.getDroppedCount(),
+                    snapshot.percentileMs(0.5), snapshot.percentileMs(0.99), snapshot.percentileMs(1.0));
+            streams.forEach(stream -> stream.cancel(true));
+            assertThat(complete).isTrue();
+            assertThat(changeFeed.getDroppedCount()).isZero();
+        }
+    }
+
+    private static final class EventCounter implements Flow.Subscriber<String> {
+
+        private final AtomicLongArray publishedAt;
+        private final LatencyRecorder recorder;
+        private final CountDownLatch delivered;
+        private int sequence;
+
+        private EventCounter(AtomicLongArray publishedAt, LatencyRecorder recorder, CountDownLatch delivered){
+            this.publishedAt = publishedAt;
+            this.recorder = recorder;
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("id:")) {
+                sequence = Integer.parseInt(line.substring("id:".length()));
+            } else if (line.startsWith("data:") && sequence > 0 && sequence < publishedAt.length()) {
+                recorder.record(System.nanoTime() - publishedAt.get(sequence));
+                delivered.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            recorder.recordError();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.javaguides.springboottesting.load;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 以模擬的資料庫延遲, 在相同的thread總數下比較blocking與async模式在高併發下的throughput:
+ * platform模式全部給Tomcat, async模式Tomcat與employeeTaskExecutor各佔一半
+ * 執行方式: ./mvnw -Pload test
+ */
+@Tag("load")
+public class ExecutionModeLoadTests {
+
+    private static final int CLIENTS = 200;
+    private static final int THREAD_BUDGET = 16;
+    private static final long DB_LATENCY_MS = 20;
+    private static final Duration DURATION = Duration.ofSeconds(5);
+
+    // Junit test for throughput of blocking vs async execution mode
+    @DisplayName("Junit test for throughput of blocking vs async execution mode")
+    @Test
+    public void givenSlowDatabase_whenManyConcurrentClients_thenReportThroughputPerMode() throws Exception {
+        // given - precondition or setup
+        // when - action or the behavior that we are going test
+        double blocking = measure("platform", "/api/employees", THREAD_BUDGET, 1);
+        double async = measure("async", "/api/async/employees", THREAD_BUDGET / 2, THREAD_BUDGET / 2);
+
+        // then - verify the output 只報告數字, 兩種模式的db呼叫都佔一條thread, 不假設哪一個較快
+        System.out.printf("GET by id with %d clients, %d threads, %dms db latency: platform=%.0f req/s, async=%.0f req/s%n",
+                CLIENTS, THREAD_BUDGET, DB_LATENCY_MS, blocking, async);
+        assertThat(blocking).isPositive();
+        assertThat(async).isPositive();
+    }
+
+    private double measure(String mode, String path, int tomcatThreads, int executorThreads) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .initializers(ctx -> ctx.getBeanFactory().addBeanPostProcessor(new SlowRepositoryPostProcessor()))
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID(),
+                        "--logging.level.root=WARN",
+                        "--employee.cache.type=none",
+                        "--employee.execution.mode=" + mode,
+                        "--employee.execution.pool-size=" + executorThreads,
+                        "--server.tomcat.threads.max=" + tomcatThreads)) {
+            List<Long> ids = LoadDriver.seed(context.getBean(EmployeeService.class), 1);
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadReport report = new LoadDriver("http://localhost:" + port + path, ids).run(LoadProfile.builder()
+                    .clients(CLIENTS)
+                    .warmup(Duration.ZERO)
+                    .duration(DURATION)
+                    .mix(LoadProfile.parseMix("get=1"))
+                    .build());
+            System.out.printf("mode=%s%n%s", mode, report.format());
+            assertThat(report.errors()).isZero();
+            return report.throughput();
+        }
+    }
+
+    /**
+     * 讓EmployeeRepository.findViewById固定延遲, 模擬遠端資料庫的round trip
+     */
+    static class SlowRepositoryPostProcessor implements BeanPostProcessor {
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (!(bean instanceof EmployeeRepository)) {
+                return bean;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{EmployeeRepository.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("findViewById")) {
+                            Thread.sleep(DB_LATENCY_MS);
+                        }
+                        try {
+                            return method.invoke(bean, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package net.javaguides.springboottesting.load;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保留每一筆latency, 結束後排序計算percentile; 壓測時間只有數秒到數分鐘, 全部保留比直方圖近似更精確
+ */
+final class LatencyRecorder {
+
+    private long[] samples = new long[1024];
+    private int size;
+    private long errors;
+
+    synchronized void record(long nanos){
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    synchronized void recordError(){
+        errors++;
+    }
+
+    synchronized Snapshot snapshot(){
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        return new Snapshot(sorted, errors);
+    }
+
+    static final class Snapshot {
+
+        private final long[] sorted;
+        private final long errors;
+
+        private Snapshot(long[] sorted, long errors){
+            this.sorted = sorted;
+            this.errors = errors;
+        }
+
+        long count(){
+            return sorted.length;
+        }
+
+        long errors(){
+            return errors;
+        }
+
+        // nearest-rank percentile in milliseconds, 0 when nothing was recorded
+        double percentileMs(double quantile){
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(quantile * sorted.length);
+            return sorted[Math.max(0, Math.min(rank, sorted.length) - 1)] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package net.javaguides.springboottesting.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.EmployeeService;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 以固定數量的client thread持續送出request (closed loop), 依mix的權重隨機選擇operation.
+ * GET/LIST/UPDATE只使用預先seed的資料, DELETE只刪除壓測期間新增的資料, 因此不會產生404
+ */
+final class LoadDriver {
+
+    enum Operation {
+        CREATE,
+        GET,
+        LIST,
+        UPDATE,
+        DELETE
+    }
+
+    private static final String JSON = "application/json";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final String baseUri;
+    private final List<Long> seededIds;
+    private final ConcurrentLinkedDeque<Long> createdIds = new ConcurrentLinkedDeque<>();
+
+    /**
+     * @param baseUri 例如 http://localhost:8080/api/employees
+     */
+    LoadDriver(String baseUri, List<Long> seededIds){
+        this.baseUri = baseUri;
+        this.seededIds = new ArrayList<>(seededIds);
+    }
+
+    /**
+     * 以saveEmployees分批新增count筆, 回傳新增的id
+     */
+    static List<Long> seed(EmployeeService employeeService, int count){
+        List<Long> ids = new ArrayList<>(count);
+        List<Employee> chunk = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            chunk.add(Employee.builder()
+                    .firstname("Seed" + i)
+                    .lastname("Load")
+                    .email("seed-" + i + "-" + UUID.randomUUID() + "@load.test")
+                    .build());
+            if (chunk.size() == 1000 || i == count - 1) {
+                for (BatchItemResult item : employeeService.saveEmployees(chunk).getItems()) {
+                    ids.add(item.getId());
+                }
+                chunk = new ArrayList<>();
+            }
+        }
+        return ids;
+    }
+
+    LoadReport run(LoadProfile profile) throws Exception {
+        // HttpClient的executor不會自己結束, 每次run結束時關閉
+        ExecutorService httpExecutor = Executors.newCachedThreadPool();
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(httpExecutor)
+                    .build();
+            if (!profile.getWarmup().isZero()) {
+                drive(client, profile, profile.getWarmup(), new EnumMap<>(Operation.class), new LatencyRecorder());
+            }
+            Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+            LatencyRecorder overall = new LatencyRecorder();
+            drive(client, profile, profile.getDuration(), recorders, overall);
+
+            Map<Operation, LatencyRecorder.Snapshot> snapshots = new EnumMap<>(Operation.class);
+            recorders.forEach((operation, recorder) -> snapshots.put(operation, recorder.snapshot()));
+            return new LoadReport(snapshots, overall.snapshot(), profile.getDuration());
+        } finally {
+            httpExecutor.shutdownNow();
+        }
+    }
+
+    private void drive(HttpClient client, LoadProfile profile, Duration duration, Map<Operation, LatencyRecorder> recorders,
+                       LatencyRecorder overall) throws Exception {
+        Operation[] wheel = wheel(profile.getMix());
+        for (Operation operation : wheel) {
+            recorders.putIfAbsent(operation, new LatencyRecorder());
+        }
+        ExecutorService clients = Executors.newFixedThreadPool(profile.getClients());
+        long deadline = System.nanoTime() + duration.toNanos();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < profile.getClients(); i++) {
+                futures.add(clients.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        Operation operation = wheel[random.nextInt(wheel.length)];
+                        Long deleteId = operation == Operation.DELETE ? createdIds.poll() : null;
+                        if (operation == Operation.DELETE && deleteId == null) {
+                            // 還沒有可刪除的資料, 改為新增
+                            operation = Operation.CREATE;
+                        }
+                        HttpRequest request = request(operation, deleteId, random);
+                        long start = System.nanoTime();
+                        HttpResponse<String> response;
+                        try {
+                            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        } catch (IOException e) {
+                            // 連線被拒絕或中斷也是失敗的request, 不中止整個壓測
+                            recorders.get(operation).recordError();
+                            overall.recordError();
+                            continue;
+                        }
+                        long elapsed = System.nanoTime() - start;
+                        if (response.statusCode() / 100 == 2) {
+                            recorders.get(operation).record(elapsed);
+                            overall.record(elapsed);
+                            if (operation == Operation.CREATE) {
+                                createdIds.add(idOf(response.body()));
+                            }
+                        } else {
+                            recorders.get(operation).recordError();
+                            overall.recordError();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    private HttpRequest request(Operation operation, Long deleteId, ThreadLocalRandom random){
+        long id = seededIds.get(random.nextInt(seededIds.size()));
+        switch (operation) {
+            case CREATE:
+                return HttpRequest.newBuilder(URI.create(baseUri))
+                        .header("Content-Type", JSON)
+                        .POST(HttpRequest.BodyPublishers.ofString(body("Load", UUID.randomUUID() + "@load.test")))
+                        .build();
+            case LIST:
+                return HttpRequest.newBuilder(URI.create(baseUri + "?limit=50&after=" + id)).GET().build();
+            case UPDATE:
+                return HttpRequest.newBuilder(URI.create(baseUri + "/" + id))
+                        .header("Content-Type", JSON)
+                        .PUT(HttpRequest.BodyPublishers.ofString(body("Updated" + random.nextInt(1000), "updated-" + id + "@load.test")))
+                        .build();
+            case DELETE:
+                return HttpRequest.newBuilder(URI.create(baseUri + "/" + deleteId)).DELETE().build();
+            case GET:
+            default:
+                return HttpRequest.newBuilder(URI.create(baseUri + "/" + id)).GET().build();
+        }
+    }
+
+    private static String body(String firstname, String email){
+        return "{\"firstname\":\"" + firstname + "\",\"lastname\":\"Load\",\"email\":\"" + email + "\"}";
+    }
+
+    private static long idOf(String json) throws IOException {
+        return OBJECT_MAPPER.readTree(json).get("id").asLong();
+    }
+
+    // operation依權重展開, 隨機取一格即為加權選擇
+    private static Operation[] wheel(Map<Operation, Integer> mix){
+        List<Operation> wheel = new ArrayList<>();
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(operation);
+            }
+        });
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no positive weights");
+        }
+        return wheel.toArray(new Operation[0]);
+    }
+}
@@ -0,0 +1,74 @@
+package net.javaguides.springboottesting.load;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 壓測參數與SLA門檻, 可用system property覆寫, 例如:
+ * ./mvnw -Pload test -Dload.clients=64 -Dload.duration=PT60S -Dload.mix=get=80,update=20 -Dload.sla.p99-ms=100
+ * SLA門檻小於等於0表示不檢查
+ */
+@Getter
+@Builder
+final class LoadProfile {
+
+    static final String DEFAULT_MIX = "create=10,get=55,list=15,update=15,delete=5";
+
+    @Builder.Default
+    private int clients = 32;
+    @Builder.Default
+    private Duration warmup = Duration.ofSeconds(2);
+    @Builder.Default
+    private Duration duration = Duration.ofSeconds(10);
+    // employees inserted before the run, GET/LIST/UPDATE pick from them
+    @Builder.Default
+    private int seed = 1000;
+    @Builder.Default
+    private Map<LoadDriver.Operation, Integer> mix = parseMix(DEFAULT_MIX);
+
+    @Builder.Default
+    private double maxP99Ms = 500;
+    @Builder.Default
+    private double maxP999Ms = 2000;
+    @Builder.Default
+    private double minThroughput = 0;
+    @Builder.Default
+    private double maxErrorRate = 0;
+
+    static LoadProfile fromSystemProperties(){
+        LoadProfile defaults = LoadProfile.builder().build();
+        return LoadProfile.builder()
+                .clients(Integer.getInteger("load.clients", defaults.clients))
+                .warmup(Duration.parse(System.getProperty("load.warmup", defaults.warmup.toString())))
+                .duration(Duration.parse(System.getProperty("load.duration", defaults.duration.toString())))
+                .seed(Integer.getInteger("load.seed", defaults.seed))
+                .mix(parseMix(System.getProperty("load.mix", DEFAULT_MIX)))
+                .maxP99Ms(doubleProperty("load.sla.p99-ms", defaults.maxP99Ms))
+                .maxP999Ms(doubleProperty("load.sla.p999-ms", defaults.maxP999Ms))
+                .minThroughput(doubleProperty("load.sla.min-throughput", defaults.minThroughput))
+                .maxErrorRate(doubleProperty("load.sla.max-error-rate", defaults.maxErrorRate))
+                .build();
+    }
+
+    // "get=80,update=20" -> relative weights per operation
+    static Map<LoadDriver.Operation, Integer> parseMix(String mix){
+        Map<LoadDriver.Operation, Integer> weights = new EnumMap<>(LoadDriver.Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid load.mix entry: " + entry);
+            }
+            weights.put(LoadDriver.Operation.valueOf(pair[0].trim().toUpperCase()), Integer.parseInt(pair[1].trim()));
+        }
+        return weights;
+    }
+
+    private static double doubleProperty(String name, double defaultValue){
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
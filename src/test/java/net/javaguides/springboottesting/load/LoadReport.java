@@ -0,0 +1,75 @@
+package net.javaguides.springboottesting.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次壓測的結果: 各operation的筆數、錯誤數、throughput及p50/p99/p999
+ */
+final class LoadReport {
+
+    private final Map<LoadDriver.Operation, LatencyRecorder.Snapshot> operations;
+    private final LatencyRecorder.Snapshot overall;
+    private final double seconds;
+
+    LoadReport(Map<LoadDriver.Operation, LatencyRecorder.Snapshot> operations, LatencyRecorder.Snapshot overall,
+               Duration duration){
+        this.operations = new EnumMap<>(operations);
+        this.overall = overall;
+        this.seconds = duration.toNanos() / 1e9;
+    }
+
+    double throughput(){
+        return overall.count() / seconds;
+    }
+
+    long errors(){
+        return overall.errors();
+    }
+
+    double errorRate(){
+        long total = overall.count() + overall.errors();
+        return total == 0 ? 0 : overall.errors() / (double) total;
+    }
+
+    double percentileMs(double quantile){
+        return overall.percentileMs(quantile);
+    }
+
+    /**
+     * 超過SLA門檻的項目, 空list表示全部通過
+     */
+    List<String> violations(LoadProfile profile){
+        List<String> violations = new ArrayList<>();
+        if (profile.getMaxP99Ms() > 0 && percentileMs(0.99) > profile.getMaxP99Ms()) {
+            violations.add(String.format("p99 %.1fms > %.1fms", percentileMs(0.99), profile.getMaxP99Ms()));
+        }
+        if (profile.getMaxP999Ms() > 0 && percentileMs(0.999) > profile.getMaxP999Ms()) {
+            violations.add(String.format("p999 %.1fms > %.1fms", percentileMs(0.999), profile.getMaxP999Ms()));
+        }
+        if (profile.getMinThroughput() > 0 && throughput() < profile.getMinThroughput()) {
+            violations.add(String.format("throughput %.0f req/s < %.0f req/s", throughput(), profile.getMinThroughput()));
+        }
+        if (errorRate() > profile.getMaxErrorRate()) {
+            violations.add(String.format("error rate %.4f > %.4f", errorRate(), profile.getMaxErrorRate()));
+        }
+        return violations;
+    }
+
+    String format(){
+        StringBuilder table = new StringBuilder(String.format("%-8s %9s %7s %10s %9s %9s %9s%n",
+                "op", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms"));
+        operations.forEach((operation, snapshot) -> row(table, operation.name(), snapshot));
+        row(table, "TOTAL", overall);
+        return table.toString();
+    }
+
+    private void row(StringBuilder table, String name, LatencyRecorder.Snapshot snapshot){
+        table.append(String.format("%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f%n", name, snapshot.count(), snapshot.errors(),
+                snapshot.count() / seconds, snapshot.percentileMs(0.5), snapshot.percentileMs(0.99),
+                snapshot.percentileMs(0.999)));
+    }
+}
@@ -0,0 +1,46 @@
+package net.javaguides.springboottesting.load;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import net.javaguides.springboottesting.service.EmployeeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 啟動完整的應用程式, 以多個client混合create/get/list/update/delete壓測REST API, 超過SLA門檻時測試失敗
+ * 執行方式: ./mvnw -Pload test -Dtest=RestApiSlaLoadTests, 參數見LoadProfile
+ */
+@Tag("load")
+public class RestApiSlaLoadTests {
+
+    // Junit test for REST API latency and throughput SLA
+    @DisplayName("Junit test for REST API latency and throughput SLA")
+    @Test
+    public void givenSeededEmployees_whenMixedConcurrentTraffic_thenLatencyAndErrorsWithinSla() throws Exception {
+        // given - precondition or setup
+        LoadProfile profile = LoadProfile.fromSystemProperties();
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringBootTestingApplication.class)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID(),
+                        "--logging.level.root=WARN")) {
+            List<Long> ids = LoadDriver.seed(context.getBean(EmployeeService.class), profile.getSeed());
+            String port = context.getEnvironment().getProperty("local.server.port");
+            LoadDriver driver = new LoadDriver("http://localhost:" + port + "/api/employees", ids);
+
+            // when - action or the behavior that we are going test
+            LoadReport report = driver.run(profile);
+
+            // then - verify the output
+            System.out.printf("%d clients, %s, mix %s%n%s", profile.getClients(), profile.getDuration(),
+                    profile.getMix(), report.format());
+            assertThat(report.violations(profile)).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package net.javaguides.springboottesting.load;
+
+import net.javaguides.springboottesting.SpringBootTestingApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 每次啟動一個新的JVM, 量測從process啟動到GET /api/employees第一次回覆200的時間 (time-to-first-request)
+ * 比較Hibernate ddl-auto=update、Flyway migration、fast-startup profile, 以及加上AppCDS archive
+ * AppCDS需先執行 ./mvnw -Pstartup package (產生target/cds), 沒有archive時略過該組
+ * 執行方式: ./mvnw -Pload test -Dtest=StartupTimeLoadTests -Dload.startup.runs=5
+ */
+@Tag("load")
+public class StartupTimeLoadTests {
+
+    private static final int RUNS = Integer.getInteger("load.startup.runs", 3);
+    private static final Path CDS_DIR = Paths.get(System.getProperty("load.startup.cds-dir", "target/cds"));
+    private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofMillis(200))
+            .build();
+
+    // Junit test for time to first request with each startup configuration
+    @DisplayName("Junit test for time to first request with each startup configuration")
+    @Test
+    public void givenStartupConfigurations_whenStartApplication_thenReportTimeToFirstRequest() throws Exception {
+        // given - precondition or setup
+        Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("ddl-auto=update", classpathCommand(List.of("--spring.flyway.enabled=false", "--spring.jpa.hibernate.ddl-auto=update")));
+        variants.put("flyway", classpathCommand(List.of()));
+        variants.put("fast-startup", classpathCommand(List.of("--spring.profiles.active=fast-startup")));
+        Path archive = CDS_DIR.resolve("app.jsa");
+        if (Files.exists(archive)) {
+            variants.put("fast-startup+appcds", cdsCommand(archive));
+        }
+
+        // when - action or the behavior that we are going test
+        StringBuilder report = new StringBuilder("time to first request (ms), " + RUNS + " runs\n");
+        for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+            long[] millis = new long[RUNS];
+            for (int i = 0; i < RUNS; i++) {
+                millis[i] = timeToFirstRequest(variant.getValue());
+            }
+            Arrays.sort(millis);
+            report.append(String.format("%-22s min %6d  median %6d%n", variant.getKey(), millis[0], millis[RUNS / 2]));
+
+            // then - verify the output
+            assertThat(millis[0]).isPositive();
+        }
+        System.out.print(report);
+    }
+
+    private long timeToFirstRequest(List<String> command) throws Exception {
+        int port = freePort();
+        List<String> args = new ArrayList<>(command);
+        args.add("--server.port=" + port);
+        File log = File.createTempFile("startup-", ".log");
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(args)
+                .redirectErrorStream(true)
+                .redirectOutput(log)
+                .start();
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/employees")).GET().build();
+            long deadline = start + TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("application exited with " + process.exitValue() + ", see " + log);
+                }
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                        log.delete();
+                        return elapsed;
+                    }
+                } catch (IOException notListeningYet) {
+                    // connection refused until Tomcat is started
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("no response within " + TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // surefire runs tests from a manifest-only jar, the real classpath is in surefire.test.class.path
+    private static List<String> classpathCommand(List<String> appArgs){
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<String> command = new ArrayList<>();
+        command.add(javaExecutable());
+        command.addAll(List.of("-cp", classpath, SpringBootTestingApplication.class.getName(), "--logging.level.root=WARN"));
+        command.addAll(appArgs);
+        return command;
+    }
+
+    // the archive only matches the classpath it was dumped with, i.e. the thin jar from -Pstartup
+    private static List<String> cdsCommand(Path archive) throws IOException {
+        Path jar;
+        try (Stream<Path> files = Files.list(CDS_DIR)) {
+            jar = files.filter(file -> file.toString().endsWith("-cds.jar"))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no -cds.jar in " + CDS_DIR));
+        }
+        return List.of(javaExecutable(), "-XX:SharedArchiveFile=" + archive, "-jar", jar.toString(),
+                "--logging.level.root=WARN", "--spring.profiles.active=fast-startup");
+    }
+
+    private static String javaExecutable(){
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -1,13 +1,19 @@
 package net.javaguides.springboottesting.repository;
 
+import net.javaguides.springboottesting.dto.EmployeeView;
 import net.javaguides.springboottesting.model.Employee;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 
+import org.hibernate.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,6 +22,8 @@ import java.util.Optional;
 public class EmployeeRepositoryTests {
     @Autowired EmployeeRepository employeeRepository;
 
+    @Autowired TestEntityManager testEntityManager;
+
     private Employee employee;
 
     @BeforeEach
@@ -181,4 +189,170 @@ public class EmployeeRepositoryTests {
         // then - verify the output
         assertThat(employeeDB).isNotNull();
     }
+
+    // Junit test for keyset pagination query
+    @DisplayName("Junit test for keyset pagination query")
+    @Test
+    public void givenEmployeesList_whenFindPageAfter_thenReturnNextPageInIdOrder(){
+        // given - precondition or setup
+        Employee employee1 = Employee.builder()
+                .firstname("John")
+                .lastname("Dada")
+                .email("dadaxxx@google.com.tw")
+                .build();
+        Employee employee2 = Employee.builder()
+                .firstname("Mary")
+                .lastname("Lin")
+                .email("maryxxx@google.com.tw")
+                .build();
+        employeeRepository.saveAll(List.of(employee, employee1, employee2));
+
+        // when - action or the behavior that we are going test
+        List<EmployeeView> firstPage = employeeRepository.findPageAfter(0L, PageRequest.of(0, 2));
+        List<EmployeeView> secondPage = employeeRepository.findPageAfter(firstPage.get(1).getId(), PageRequest.of(0, 2));
+
+        // then - verify the output
+        assertThat(firstPage).extracting(EmployeeView::getEmail)
+                .containsExactly(employee.getEmail(), employee1.getEmail());
+        assertThat(secondPage).extracting(EmployeeView::getEmail)
+                .containsExactly(employee2.getEmail());
+    }
+
+    // Junit test for set-based email lookup
+    @DisplayName("Junit test for set-based email lookup")
+    @Test
+    public void givenEmails_whenFindExistingEmails_thenReturnOnlyStoredEmails(){
+        // given - precondition or setup
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that we are going test
+        List<String> emails = employeeRepository.findExistingEmails(List.of(employee.getEmail(), "nobody@google.com.tw"));
+
+        // then - verify the output
+        assertThat(emails).containsExactly(employee.getEmail());
+    }
+
+    // Junit test for unique email constraint
+    @DisplayName("Junit test for unique email constraint")
+    @Test
+    public void givenExistingEmail_whenSaveEmployee_thenThrowsDataIntegrityViolation(){
+        // given - precondition or setup
+        employeeRepository.saveAndFlush(employee);
+        Employee duplicate = Employee.builder()
+                .firstname("John")
+                .lastname("Dada")
+                .email(employee.getEmail())
+                .build();
+
+        // when - action or the behavior that we are going test
+        Throwable thrown = catchThrowable(() -> employeeRepository.saveAndFlush(duplicate));
+
+        // then - verify the output
+        assertThat(thrown).isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    // Junit test for single statement update operation
+    @DisplayName("Junit test for single statement update operation")
+    @Test
+    public void givenEmployeeObject_whenUpdateById_thenReturnAffectedRows(){
+        // given - precondition or setup
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that we are going test
+        int updated = employeeRepository.updateById(employee.getId(), "Ives", "JS", "abcxxx@yahoo.com.tw");
+        int missing = employeeRepository.updateById(employee.getId() + 1, "Ives", "JS", "defxxx@yahoo.com.tw");
+
+        // then - verify the output
+        assertThat(updated).isEqualTo(1);
+        assertThat(missing).isEqualTo(0);
+        Employee updatedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updatedEmployee.getLastname()).isEqualTo("JS");
+        assertThat(updatedEmployee.getEmail()).isEqualTo("abcxxx@yahoo.com.tw");
+    }
+
+    // Junit test for partial update operation
+    @DisplayName("Junit test for partial update operation")
+    @Test
+    public void givenChangedFields_whenPatchById_thenOnlyChangedColumnsAreWritten(){
+        // given - precondition or setup
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that we are going test
+        int updated = employeeRepository.patchById(employee.getId(), Employee.builder().lastname("JS").build());
+
+        // then - verify the output
+        assertThat(updated).isEqualTo(1);
+        Employee updatedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updatedEmployee.getFirstname()).isEqualTo("Ives");
+        assertThat(updatedEmployee.getLastname()).isEqualTo("JS");
+        assertThat(updatedEmployee.getEmail()).isEqualTo("ivesxxx@google.com.tw");
+    }
+
+    // Junit test for direct delete operation
+    @DisplayName("Junit test for direct delete operation")
+    @Test
+    public void givenEmployeeObject_whenDeleteEmployeeById_thenReturnAffectedRows(){
+        // given - precondition or setup
+        employeeRepository.save(employee);
+
+        // when - action or the behavior that we are going test
+        int deleted = employeeRepository.deleteEmployeeById(employee.getId());
+        int deletedAgain = employeeRepository.deleteEmployeeById(employee.getId());
+
+        // then - verify the output
+        assertThat(deleted).isEqualTo(1);
+        assertThat(deletedAgain).isEqualTo(0);
+        assertThat(employeeRepository.findById(employee.getId())).isEmpty();
+    }
+
+    // Junit test for read-only projection queries
+    @DisplayName("Junit test for read-only projection queries")
+    @Test
+    public void givenSavedEmployees_whenFindViews_thenNoEntitiesAreManaged(){
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        employeeRepository.saveAndFlush(employee);
+        testEntityManager.clear();
+
+        // when - action or the behavior that we are going test
+        List<EmployeeView> views = employeeRepository.findAllViews();
+        Optional<EmployeeView> byId = employeeRepository.findViewById(employee.getId());
+        Optional<EmployeeView> byEmail = employeeRepository.findViewByEmail(employee.getEmail());
+
+        // then - verify the output persistence context中沒有任何entity
+        assertThat(views).extracting(EmployeeView::getEmail).containsExactly(employee.getEmail());
+        assertThat(byId).isPresent();
+        assertThat(byEmail.get().getId()).isEqualTo(employee.getId());
+        assertThat(testEntityManager.getEntityManager().unwrap(Session.class)
+                .getStatistics().getEntityCount()).isZero();
+    }
+
+    // Junit test for versioned single statement update
+    @DisplayName("Junit test for versioned single statement update")
+    @Test
+    public void givenEmployee_whenUpdateByIdAndVersion_thenOnlyCurrentVersionWins(){
+        // given - precondition or setup
+        Employee employee = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build();
+        employeeRepository.saveAndFlush(employee);
+        long version = employee.getVersion();
+
+        // when - action or the behavior that we are going test
+        int first = employeeRepository.updateByIdAndVersion(employee.getId(), version, "Ram", "He", employee.getEmail());
+        int second = employeeRepository.updateByIdAndVersion(employee.getId(), version, "Lost", "He", employee.getEmail());
+
+        // then - verify the output
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        Employee updatedEmployee = employeeRepository.findById(employee.getId()).get();
+        assertThat(updatedEmployee.getFirstname()).isEqualTo("Ram");
+        assertThat(updatedEmployee.getVersion()).isEqualTo(version + 1);
+    }
 }
@@ -0,0 +1,47 @@
+package net.javaguides.springboottesting.repository;
+
+import net.javaguides.springboottesting.model.Employee;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("l2cache") // 開啟Hibernate second-level cache
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // 每次呼叫repository各自commit, 資料才會放進second-level cache
+public class EmployeeSecondLevelCacheTests {
+    @Autowired private EmployeeRepository employeeRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    void cleanup(){
+        employeeRepository.deleteAll();
+    }
+
+    // Junit test for second-level entity cache
+    @DisplayName("Junit test for second-level entity cache")
+    @Test
+    public void givenSavedEmployee_whenFindById_thenEntityIsInSecondLevelCache(){
+        // given - precondition or setup
+        Employee employee = employeeRepository.save(Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email("ivesxxx@google.com.tw")
+                .build());
+        entityManagerFactory.getCache().evictAll();
+
+        // when - action or the behavior that we are going test
+        employeeRepository.findById(employee.getId());
+
+        // then - verify the output
+        assertThat(entityManagerFactory.getCache().contains(Employee.class, employee.getId())).isTrue();
+    }
+}
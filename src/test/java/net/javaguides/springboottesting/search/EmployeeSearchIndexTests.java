@@ -0,0 +1,70 @@
+package net.javaguides.springboottesting.search;
+
+import net.javaguides.springboottesting.model.Employee;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EmployeeSearchIndexTests {
+
+    private EmployeeSearchIndex searchIndex;
+
+    @BeforeEach
+    public void setup(){
+        searchIndex = new EmployeeSearchIndex();
+        searchIndex.index(Employee.builder().id(1L).firstname("Ives").lastname("He").email("ivesxxx@google.com.tw").build());
+        searchIndex.index(Employee.builder().id(2L).firstname("Ivan").lastname("Hsu").email("ivan@gmail.com").build());
+        searchIndex.index(Employee.builder().id(3L).firstname("Iv").lastname("Wang").email("wang@gmail.com").build());
+    }
+
+    // Junit test for prefix search ranking
+    @DisplayName("Junit test for prefix search ranking")
+    @Test
+    public void givenIndexedEmployees_whenSearchPrefix_thenReturnRankedResults(){
+        // given - precondition or setup
+
+        // when - action or the behavior that we are going test
+        List<Employee> results = searchIndex.search("iv", 10);
+
+        // then - verify the output 完全相同的token排在前面, 同分依id排序
+        assertThat(results).extracting(Employee::getId).containsExactly(3L, 1L, 2L);
+        assertThat(searchIndex.search("iv", 2)).hasSize(2);
+    }
+
+    // Junit test for multi term search
+    @DisplayName("Junit test for multi term search")
+    @Test
+    public void givenTwoTerms_whenSearch_thenEveryTermMustMatch(){
+        // given - precondition or setup
+
+        // when - action or the behavior that we are going test
+        List<Employee> results = searchIndex.search("Iv H", 10);
+
+        // then - verify the output
+        assertThat(results).extracting(Employee::getId).containsExactly(1L, 2L);
+        assertThat(searchIndex.search("ivan@gm", 10)).extracting(Employee::getId).containsExactly(2L);
+        assertThat(searchIndex.search("zzz", 10)).isEmpty();
+    }
+
+    // Junit test for incremental index updates
+    @DisplayName("Junit test for incremental index updates")
+    @Test
+    public void givenIndexedEmployee_whenMergeAndRemove_thenSearchReflectsChanges(){
+        // given - precondition or setup
+
+        // when - action or the behavior that we are going test 只帶lastname的部分更新
+        searchIndex.merge(Employee.builder().id(1L).lastname("Chen").build());
+        searchIndex.remove(2L);
+
+        // then - verify the output
+        assertThat(searchIndex.search("he", 10)).isEmpty();
+        assertThat(searchIndex.search("ives chen", 10)).extracting(Employee::getEmail)
+                .containsExactly("ivesxxx@google.com.tw");
+        assertThat(searchIndex.search("ivan", 10)).isEmpty();
+        assertThat(searchIndex.size()).isEqualTo(2);
+    }
+}
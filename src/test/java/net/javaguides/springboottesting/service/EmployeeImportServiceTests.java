@@ -0,0 +1,126 @@
+package net.javaguides.springboottesting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.ImportResult;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.impl.EmployeeImportServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeImportServiceTests {
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @Captor
+    private ArgumentCaptor<List<Employee>> chunks;
+
+    private EmployeeImportServiceImpl importService;
+
+    @BeforeEach
+    public void setup(){
+        importService = new EmployeeImportServiceImpl(employeeService, new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+    }
+
+    // Junit test for importCsv method
+    @DisplayName("Junit test for importCsv method")
+    @Test
+    public void givenCsvRows_whenImportCsv_thenSaveInChunksAndReportLineErrors(){
+        // given - precondition or setup 第4行引號未閉合, 第5行的email在資料庫已存在
+        String csv = "email,first_name,last_name\n"
+                + "ives@gmail.com,Ives,He\n"
+                + "\"dada,jr@gmail.com\",Dada,\"Lin, Jr\"\n"
+                + "\"broken,Mary,Lin\n"
+                + "tony@gmail.com,Tony,Stark\n";
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            List<Employee> chunk = invocation.getArgument(0);
+            List<BatchItemResult> items = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                String email = chunk.get(i).getEmail();
+                items.add(email.startsWith("tony")
+                        ? BatchItemResult.failed(i, email, "Employee already exist with given email:" + email)
+                        : BatchItemResult.created(i, i + 1, email));
+            }
+            return BatchResult.of(items);
+        });
+
+        // when - action or the behavior that we are going test
+        ImportResult result = importService.importCsv(stream(csv));
+
+        // then - verify the output
+        verify(employeeService, times(2)).saveEmployees(chunks.capture());
+        assertThat(result.getRows()).isEqualTo(4);
+        assertThat(result.getCreated()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(4L, 5L);
+        assertThat(result.isErrorsTruncated()).isFalse();
+    }
+
+    // Junit test for importCsv method with a missing header column
+    @DisplayName("Junit test for importCsv method with a missing header column")
+    @Test
+    public void givenCsvWithoutEmailColumn_whenImportCsv_thenReportHeaderError(){
+        // given - precondition or setup
+        String csv = "firstname,lastname\nIves,He\n";
+
+        // when - action or the behavior that we are going test
+        ImportResult result = importService.importCsv(stream(csv));
+
+        // then - verify the output 只回報標題列的錯誤, 其餘不處理
+        assertThat(result.getRows()).isEqualTo(1);
+        assertThat(result.getErrors()).extracting("line").containsExactly(1L);
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    // Junit test for importNdjson method
+    @DisplayName("Junit test for importNdjson method")
+    @Test
+    public void givenNdjsonRows_whenImportNdjson_thenBoundErrorList(){
+        // given - precondition or setup
+        ReflectionTestUtils.setField(importService, "maxErrors", 1);
+        String ndjson = "{\"firstname\":\"Ives\",\"lastname\":\"He\",\"email\":\"ives@gmail.com\"}\n"
+                + "\n"
+                + "not json\n"
+                + "{\"firstname\":\n";
+        given(employeeService.saveEmployees(anyList()))
+                .willReturn(BatchResult.of(List.of(BatchItemResult.created(0, 1L, "ives@gmail.com"))));
+
+        // when - action or the behavior that we are going test
+        ImportResult result = importService.importNdjson(stream(ndjson));
+
+        // then - verify the output
+        assertThat(result.getRows()).isEqualTo(3);
+        assertThat(result.getCreated()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting("line").containsExactly(3L);
+        assertThat(result.isErrorsTruncated()).isTrue();
+    }
+
+    private static InputStream stream(String text){
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
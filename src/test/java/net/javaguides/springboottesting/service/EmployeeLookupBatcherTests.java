@@ -0,0 +1,99 @@
+package net.javaguides.springboottesting.service;
+
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.service.impl.EmployeeLookupBatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class EmployeeLookupBatcherTests {
+
+    @Mock
+    private EmployeeRepository employeeRepository;
+
+    @Captor
+    private ArgumentCaptor<Collection<Long>> ids;
+
+    private EmployeeLookupBatcher lookupBatcher;
+
+    @AfterEach
+    public void tearDown(){
+        lookupBatcher.destroy();
+    }
+
+    // Junit test for batching lookups within the window
+    @DisplayName("Junit test for batching lookups within the window")
+    @Test
+    public void givenLookupsWithinWindow_whenLoad_thenOneInQueryForDistinctIds() throws Exception {
+        // given - precondition or setup
+        lookupBatcher = new EmployeeLookupBatcher(employeeRepository, Duration.ofMillis(100));
+        given(employeeRepository.findViewsByIds(anyCollection()))
+                .willReturn(List.of(new EmployeeView(1L, "Ives", "He", "ivesxxx@google.com.tw", 0L)));
+
+        // when - action or the behavior that we are going test
+        CompletableFuture<Optional<EmployeeView>> first = lookupBatcher.load(1L);
+        CompletableFuture<Optional<EmployeeView>> duplicate = lookupBatcher.load(1L);
+        CompletableFuture<Optional<EmployeeView>> missing = lookupBatcher.load(2L);
+
+        // then - verify the output
+        assertThat(first.get()).isPresent();
+        assertThat(duplicate.get().get().getEmail()).isEqualTo("ivesxxx@google.com.tw");
+        assertThat(missing.get()).isEmpty();
+        verify(employeeRepository, times(1)).findViewsByIds(ids.capture());
+        assertThat(ids.getValue()).containsExactly(1L, 2L);
+    }
+
+    // Junit test for a disabled batcher
+    @DisplayName("Junit test for a disabled batcher")
+    @Test
+    public void givenZeroWindow_whenLoad_thenQueryDirectly() throws Exception {
+        // given - precondition or setup
+        lookupBatcher = new EmployeeLookupBatcher(employeeRepository, Duration.ZERO);
+        given(employeeRepository.findViewById(1L)).willReturn(Optional.empty());
+
+        // when - action or the behavior that we are going test
+        Optional<EmployeeView> employee = lookupBatcher.load(1L).get();
+
+        // then - verify the output
+        assertThat(lookupBatcher.isEnabled()).isFalse();
+        assertThat(employee).isEmpty();
+        verify(employeeRepository, never()).findViewsByIds(anyCollection());
+    }
+
+    // Junit test for pending lookups at shutdown
+    @DisplayName("Junit test for pending lookups at shutdown")
+    @Test
+    public void givenPendingLookup_whenDestroy_thenCompleteExceptionally() {
+        // given - precondition or setup window夠長, shutdown前不會flush
+        lookupBatcher = new EmployeeLookupBatcher(employeeRepository, Duration.ofMinutes(1));
+        CompletableFuture<Optional<EmployeeView>> pending = lookupBatcher.load(1L);
+
+        // when - action or the behavior that we are going test
+        lookupBatcher.destroy();
+
+        // then - verify the output 之後的查詢也立即失敗
+        assertThat(pending).isCompletedExceptionally();
+        assertThat(lookupBatcher.load(2L)).isCompletedExceptionally();
+        verify(employeeRepository, never()).findViewsByIds(anyCollection());
+    }
+}
@@ -1,10 +1,18 @@
 package net.javaguides.springboottesting.service;
 
+import net.javaguides.springboottesting.cache.EmployeeCache;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.EmployeeLookupResult;
+import net.javaguides.springboottesting.dto.EmployeeView;
+import net.javaguides.springboottesting.event.EmployeeChangedEvent;
 import net.javaguides.springboottesting.exception.ResourceNotFoundException;
 import net.javaguides.springboottesting.model.Employee;
 import net.javaguides.springboottesting.repository.EmployeeRepository;
+import net.javaguides.springboottesting.search.EmployeeSearchIndex;
 import static org.assertj.core.api.Assertions.*;
 
+import net.javaguides.springboottesting.service.impl.EmployeeLookupBatcher;
 import net.javaguides.springboottesting.service.impl.EmployeeServiceImpl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,17 +21,36 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @ExtendWith(MockitoExtension.class) // 如果要用Annotation注入Mock必須要加這段
 public class EmployeeServiceTests {
@@ -33,11 +60,25 @@ public class EmployeeServiceTests {
      */
     @Mock
     private EmployeeRepository employeeRepository;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private EmployeeCache employeeCache;
+    @Mock
+    private EmployeeSearchIndex searchIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private EmployeeLookupBatcher lookupBatcher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
     @InjectMocks
     private EmployeeServiceImpl employeeService;
 
     private Employee employee;
 
+    private EmployeeView employeeView;
+
     @BeforeEach
     public void setup(){
         employee = Employee.builder()
@@ -46,6 +87,7 @@ public class EmployeeServiceTests {
                 .lastname("He")
                 .email("ivesxxx@google.com.tw")
                 .build();
+        employeeView = new EmployeeView(1L, "Ives", "He", "ivesxxx@google.com.tw", 0L);
     }
 
     // Junit test for saveEmployee method
@@ -53,10 +95,7 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenReturnEmployeeObject(){
         // given - precondition or setup
-        given(employeeRepository.findByEmail(employee.getEmail()))
-                .willReturn(Optional.empty());
-
-        given(employeeRepository.save(employee)).willReturn(employee);
+        given(employeeRepository.saveAndFlush(employee)).willReturn(employee);
         // when - action or the behavior that we are going test
         Employee savedEmployee = employeeService.saveEmployee(employee);
 
@@ -68,17 +107,37 @@ public class EmployeeServiceTests {
     @DisplayName("Junit test for saveEmployee method which throws exception")
     @Test
     public void givenEmployeeObject_whenSaveEmployee_thenThrowsException(){
-        // given - precondition or setup
-        given(employeeRepository.findByEmail(employee.getEmail()))
-                .willReturn(Optional.of(employee));
+        // given - precondition or setup 由unique index擋下重複的email
+        given(employeeRepository.saveAndFlush(employee))
+                .willThrow(new DataIntegrityViolationException("could not execute statement",
+                        new ConstraintViolationException("Unique index or primary key violation", null,
+                                Employee.EMAIL_UNIQUE_INDEX)));
 
         // when - action or the behavior that we are going test
         Assertions.assertThrows(ResourceNotFoundException.class,()->{
                 employeeService.saveEmployee(employee);
         });
 
-        // then - verify the output 前面已經拋出異常,所以接續的儲存方法不會執行
-        verify(employeeRepository,never()).save(any(Employee.class));
+        // then - verify the output 不再事先查詢email
+        verify(employeeRepository,never()).findByEmail(any(String.class));
+    }
+
+    // Junit test for saveEmployee method
+    @DisplayName("Junit test for saveEmployee method which rethrows other constraint violations")
+    @Test
+    public void givenInvalidEmployeeObject_whenSaveEmployee_thenRethrowsException(){
+        // given - precondition or setup
+        DataIntegrityViolationException exception = new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("NULL not allowed for column", null, null));
+        given(employeeRepository.saveAndFlush(employee)).willThrow(exception);
+
+        // when - action or the behavior that we are going test
+        DataIntegrityViolationException thrown = Assertions.assertThrows(DataIntegrityViolationException.class,()->{
+                employeeService.saveEmployee(employee);
+        });
+
+        // then - verify the output
+        assertThat(thrown).isSameAs(exception);
     }
 
     // Junit test for getAllEmployees method
@@ -86,21 +145,17 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmployeeList_whenGetAllEmployee_thenReturnEmployeeList(){
         // given - precondition or setup
-        Employee employee1 = Employee.builder()
-                .id(2L)
-                .firstname("DDD")
-                .lastname("XXX")
-                .email("iDvaxxx@google.com.tw")
-                .build();
+        EmployeeView employee1 = new EmployeeView(2L, "DDD", "XXX", "iDvaxxx@google.com.tw", 0L);
 
-        given(employeeRepository.findAll()).willReturn(List.of(employee,employee1));
+        given(employeeRepository.findAllViews()).willReturn(List.of(employeeView,employee1));
 
         // when - action or the behavior that we are going test
-        List<Employee> employeeList = employeeService.getAllEmployees();
+        List<EmployeeView> employeeList = employeeService.getAllEmployees();
 
-        // then - verify the output
+        // then - verify the output 使用projection, 不會載入entity
         assertThat(employeeList).isNotNull();
         assertThat(employeeList.size()).isEqualTo(2);
+        verify(employeeRepository, never()).findAll();
     }
 
     // Junit test for getAllEmployees method
@@ -108,10 +163,10 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmptyEmployeeList_whenGetAllEmployee_thenReturnEmptyEmployeeList(){
         // given - precondition or setup
-        given(employeeRepository.findAll()).willReturn(Collections.emptyList());
+        given(employeeRepository.findAllViews()).willReturn(Collections.emptyList());
 
         // when - action or the behavior that we are going test
-        List<Employee> employeeList = employeeService.getAllEmployees();
+        List<EmployeeView> employeeList = employeeService.getAllEmployees();
 
         // then - verify the output
         assertThat(employeeList).isEmpty();
@@ -123,13 +178,15 @@ public class EmployeeServiceTests {
     @Test
     public void givenEmployId_whenGetEmployeeById_thenReturnEmployeeObject(){
         // given - precondition or setup
-        given(employeeRepository.findById(employee.getId())).willReturn(Optional.of(employee));
+        given(employeeRepository.findViewById(employee.getId())).willReturn(Optional.of(employeeView));
 
         // when - action or the behavior that we are going test
         Employee queryEmployee = employeeService.getEmployeeById(employee.getId()).get();
 
         // then - verify the output
         assertThat(queryEmployee).isNotNull();
+        assertThat(queryEmployee.getEmail()).isEqualTo(employee.getEmail());
+        verify(employeeRepository, never()).findById(anyLong());
 
     }
 
@@ -157,13 +214,356 @@ public class EmployeeServiceTests {
         // given - precondition or setup
         long employeeId = 1L;
 
-        willDoNothing().given(employeeRepository).deleteById(employeeId);
+        given(employeeRepository.deleteEmployeeById(employeeId)).willReturn(1);
+
+        // when - action or the behavior that we are going test
+        boolean deleted = employeeService.deleteEmployee(employeeId);
+
+        // then - verify the output 直接刪除, 不會先查詢
+        assertThat(deleted).isTrue();
+        verify(employeeRepository, never()).findById(anyLong());
+        verify(employeeCache, times(1)).evict(employeeId);
+        verify(eventPublisher, times(1)).publishEvent(any(EmployeeChangedEvent.class));
+
+    }
+
+    // Junit test for getEmployeesAfter method
+    @DisplayName("Junit test for getEmployeesAfter method")
+    @Test
+    public void givenAfterIdAndLimit_whenGetEmployeesAfter_thenReturnEmployeePage(){
+        // given - precondition or setup
+        given(employeeRepository.findPageAfter(0L, PageRequest.of(0, 10))).willReturn(List.of(employeeView));
+
+        // when - action or the behavior that we are going test
+        List<EmployeeView> employeeList = employeeService.getEmployeesAfter(0L, 10);
+
+        // then - verify the output
+        assertThat(employeeList).containsExactly(employeeView);
+    }
+
+    // Junit test for saveEmployees method
+    @DisplayName("Junit test for saveEmployees method")
+    @Test
+    public void givenEmployeesList_whenSaveEmployees_thenReturnPerItemResult(){
+        // given - precondition or setup
+        Employee existing = Employee.builder()
+                .firstname("DDD")
+                .lastname("XXX")
+                .email("iDvaxxx@google.com.tw")
+                .build();
+        Employee duplicate = Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email(employee.getEmail())
+                .build();
+        Employee invalid = Employee.builder()
+                .firstname("Ives")
+                .email("invalid@google.com.tw")
+                .build();
+        given(employeeRepository.findExistingEmails(anyCollection()))
+                .willReturn(List.of(existing.getEmail()));
+
+        // when - action or the behavior that we are going test
+        BatchResult result = employeeService.saveEmployees(List.of(employee, existing, duplicate, invalid));
+
+        // then - verify the output
+        assertThat(result.getSucceeded()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getItems()).extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED,
+                        BatchItemResult.Status.FAILED, BatchItemResult.Status.FAILED);
+        verify(entityManager, times(1)).persist(employee);
+        verify(employeeRepository, times(1)).findExistingEmails(anyCollection());
+    }
+
+    // Junit test for saveEmployees method (email inserted concurrently after the pre-check)
+    @DisplayName("Junit test for saveEmployees method (email inserted concurrently after the pre-check)")
+    @Test
+    public void givenEmailInsertedConcurrently_whenSaveEmployees_thenRetryRowByRowAndFailOnlyThatItem(){
+        // given - precondition or setup 預先查詢時不存在, flush時才違反unique index
+        Employee racing = Employee.builder()
+                .firstname("DDD")
+                .lastname("XXX")
+                .email("iDvaxxx@google.com.tw")
+                .build();
+        Employee other = Employee.builder()
+                .firstname("John")
+                .lastname("Cena")
+                .email("cena@gmail.com")
+                .build();
+        given(employeeRepository.findExistingEmails(anyCollection())).willReturn(List.of());
+        List<Employee> unflushed = new ArrayList<>();
+        willAnswer(invocation -> unflushed.add(invocation.getArgument(0))).given(entityManager).persist(any(Employee.class));
+        willAnswer(invocation -> {
+            boolean conflict = unflushed.contains(racing);
+            unflushed.clear();
+            if (conflict) {
+                throw new PersistenceException(new ConstraintViolationException("could not execute statement", null,
+                        "PUBLIC." + Employee.EMAIL_UNIQUE_INDEX.toUpperCase() + " ON PUBLIC.EMPLOYEES(EMAIL)"));
+            }
+            return null;
+        }).given(entityManager).flush();
 
         // when - action or the behavior that we are going test
-        employeeService.deleteEmployee(employeeId);
+        BatchResult result = employeeService.saveEmployees(List.of(employee, racing, other));
+
+        // then - verify the output 整批rollback後逐筆新增
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getItems()).extracting(BatchItemResult::getStatus)
+                .containsExactly(BatchItemResult.Status.CREATED, BatchItemResult.Status.FAILED, BatchItemResult.Status.CREATED);
+        assertThat(result.getItems().get(1).getError()).isEqualTo("Employee already exist with given email:iDvaxxx@google.com.tw");
+        verify(entityManager, times(2)).persist(racing);
+        verify(transactionManager, times(2)).rollback(any());
+    }
+
+    // Junit test for method getEmployeeById with cache hit
+    @DisplayName("Junit test for method getEmployeeById with cache hit")
+    @Test
+    public void givenCachedEmployee_whenGetEmployeeById_thenSkipRepository(){
+        // given - precondition or setup
+        given(employeeCache.getById(employee.getId())).willReturn(Optional.of(employee));
+
+        // when - action or the behavior that we are going test
+        Employee queryEmployee = employeeService.getEmployeeById(employee.getId()).get();
 
         // then - verify the output
-        verify(employeeRepository, times(1)).deleteById(employeeId);
+        assertThat(queryEmployee).isSameAs(employee);
+        verify(employeeRepository, never()).findById(anyLong());
+    }
+
+    // Junit test for method getEmployeeByEmail
+    @DisplayName("Junit test for method getEmployeeByEmail")
+    @Test
+    public void givenEmployeeEmail_whenGetEmployeeByEmail_thenReturnAndCacheEmployee(){
+        // given - precondition or setup
+        given(employeeRepository.findViewByEmail(employee.getEmail())).willReturn(Optional.of(employeeView));
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> queryEmployee = employeeService.getEmployeeByEmail(employee.getEmail());
+
+        // then - verify the output
+        assertThat(queryEmployee).isPresent();
+        assertThat(queryEmployee.get().getId()).isEqualTo(employee.getId());
+        verify(employeeCache, times(1)).put(any(Employee.class));
+    }
+
+    // Junit test for single statement updateEmployee method
+    @DisplayName("Junit test for single statement updateEmployee method")
+    @Test
+    public void givenEmployeeIdAndEmployee_whenUpdateEmployee_thenReturnUpdatedEmployee(){
+        // given - precondition or setup
+        given(employeeRepository.updateById(1L, "ccc", employee.getLastname(), "xxsddfs@gmail.com")).willReturn(1);
+        given(employeeRepository.findViewById(1L))
+                .willReturn(Optional.of(new EmployeeView(1L, "ccc", employee.getLastname(), "xxsddfs@gmail.com", 5L)));
+        Employee changes = Employee.builder()
+                .firstname("ccc")
+                .lastname(employee.getLastname())
+                .email("xxsddfs@gmail.com")
+                .build();
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, changes);
+
+        // then - verify the output 不需要先讀出entity
+        assertThat(updatedEmployee).isPresent();
+        assertThat(updatedEmployee.get().getId()).isEqualTo(1L);
+        assertThat(updatedEmployee.get().getEmail()).isEqualTo("xxsddfs@gmail.com");
+        assertThat(updatedEmployee.get().getVersion()).isEqualTo(5L);
+        verify(employeeRepository, never()).findById(anyLong());
+        verify(employeeCache, times(1)).evict(1L);
+    }
+
+    // Junit test for single statement updateEmployee method (negative scenario)
+    @DisplayName("Junit test for single statement updateEmployee method (negative scenario)")
+    @Test
+    public void givenMissingEmployeeId_whenUpdateEmployee_thenReturnEmpty(){
+        // given - precondition or setup
+        given(employeeRepository.updateById(1L, employee.getFirstname(), employee.getLastname(), employee.getEmail()))
+                .willReturn(0);
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, employee);
+
+        // then - verify the output
+        assertThat(updatedEmployee).isEmpty();
+    }
+
+    // Junit test for patchEmployee method
+    @DisplayName("Junit test for patchEmployee method")
+    @Test
+    public void givenChangedFields_whenPatchEmployee_thenReturnAndPublishTheStoredEmployee(){
+        // given - precondition or setup
+        Employee changes = Employee.builder().lastname("JS").build();
+        given(employeeRepository.patchById(1L, changes, null)).willReturn(1);
+        given(employeeRepository.findViewById(1L)).willReturn(Optional.of(
+                new EmployeeView(1L, "Ives", "JS", "ivesxxx@google.com.tw", 4L)));
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> patched = employeeService.patchEmployee(1L, changes);
+
+        // then - verify the output
+        assertThat(patched).get()
+                .extracting(Employee::getFirstname, Employee::getLastname, Employee::getVersion)
+                .containsExactly("Ives", "JS", 4L);
+        verify(employeeCache, times(1)).evict(1L);
+        ArgumentCaptor<EmployeeChangedEvent> event = ArgumentCaptor.forClass(EmployeeChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getEmployee().getFirstname()).isEqualTo("Ives");
+        assertThat(event.getValue().getEmployee().getVersion()).isEqualTo(4L);
+    }
+
+    // Junit test for patchEmployee method (empty patch)
+    @DisplayName("Junit test for patchEmployee method (empty patch)")
+    @Test
+    public void givenNoChangedFields_whenPatchEmployee_thenPublishNothing(){
+        // given - precondition or setup
+        Employee changes = Employee.builder().build();
+        given(employeeRepository.patchById(1L, changes, null)).willReturn(1);
+        given(employeeRepository.findViewById(1L)).willReturn(Optional.of(
+                new EmployeeView(1L, "Ives", "He", "ivesxxx@google.com.tw", 3L)));
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> patched = employeeService.patchEmployee(1L, changes);
+
+        // then - verify the output
+        assertThat(patched).get().extracting(Employee::getVersion).isEqualTo(3L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // Junit test for deleteEmployees method
+    @DisplayName("Junit test for deleteEmployees method")
+    @Test
+    public void givenEmployeeIds_whenDeleteEmployees_thenDeleteInOneStatementPerChunk(){
+        // given - precondition or setup
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 1500; id++) {
+            ids.add(id);
+        }
+        // 第一個chunk全部存在, 第二個chunk只有1001~1400存在
+        given(employeeRepository.findExistingIds(anyCollection()))
+                .willReturn(ids.subList(0, 1000))
+                .willReturn(ids.subList(1000, 1400));
+        given(employeeRepository.deleteEmployeesByIds(anyCollection())).willReturn(1000, 400);
+
+        // when - action or the behavior that we are going test
+        int deleted = employeeService.deleteEmployees(ids);
+
+        // then - verify the output 不存在的id不發布DELETED事件
+        assertThat(deleted).isEqualTo(1400);
+        verify(employeeRepository, times(2)).deleteEmployeesByIds(anyCollection());
+        verify(employeeRepository).deleteEmployeesByIds(ids.subList(1000, 1400));
+        verify(eventPublisher, times(1400)).publishEvent(any(EmployeeChangedEvent.class));
+        verify(eventPublisher, never()).publishEvent(argThat((Object event) -> ((EmployeeChangedEvent) event).getId() > 1400));
+    }
+
+    // Junit test for getEmployeesByIds method
+    @DisplayName("Junit test for getEmployeesByIds method")
+    @Test
+    public void givenIds_whenGetEmployeesByIds_thenUseCacheThenOneQueryAndKeepOrder(){
+        // given - precondition or setup id 1在快取中, 2由資料庫查出, 3不存在
+        given(employeeCache.getById(1L)).willReturn(Optional.of(employee));
+        given(employeeCache.getById(2L)).willReturn(Optional.empty());
+        given(employeeCache.getById(3L)).willReturn(Optional.empty());
+        given(employeeRepository.findViewsByIds(List.of(3L, 2L)))
+                .willReturn(List.of(new EmployeeView(2L, "DDD", "XXX", "iDvaxxx@google.com.tw", 0L)));
+
+        // when - action or the behavior that we are going test
+        EmployeeLookupResult result = employeeService.getEmployeesByIds(List.of(3L, 2L, 1L, 2L));
+
+        // then - verify the output
+        assertThat(result.getContent()).extracting(Employee::getId).containsExactly(2L, 1L);
+        assertThat(result.getMissing()).containsExactly(3L);
+        verify(employeeRepository, times(1)).findViewsByIds(anyCollection());
+        verify(employeeRepository, never()).findById(anyLong());
+        verify(employeeCache, times(1)).put(any(Employee.class));
+    }
+
+    // Junit test for concurrent getEmployeeById calls
+    @DisplayName("Junit test for concurrent getEmployeeById calls sharing one query")
+    @Test
+    public void givenConcurrentCacheMisses_whenGetEmployeeById_thenQueryDatabaseOnce() throws Exception {
+        // given - precondition or setup 查詢故意變慢, 讓其他request在查詢進行中抵達
+        int callers = 8;
+        CountDownLatch started = new CountDownLatch(callers);
+        given(employeeCache.getById(1L)).willReturn(Optional.empty());
+        given(employeeRepository.findViewById(1L)).willAnswer(invocation -> {
+            Thread.sleep(300);
+            return Optional.of(employeeView);
+        });
+
+        // when - action or the behavior that we are going test
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Optional<Employee>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                started.countDown();
+                started.await();
+                return employeeService.getEmployeeById(1L);
+            }));
+        }
+
+        // then - verify the output 每個呼叫端拿到各自的複本
+        List<Employee> employees = new ArrayList<>();
+        for (Future<Optional<Employee>> result : results) {
+            employees.add(result.get().get());
+        }
+        executor.shutdown();
+        verify(employeeRepository, times(1)).findViewById(1L);
+        assertThat(employees).extracting(Employee::getEmail).containsOnly(employee.getEmail());
+        assertThat(employees.get(0)).isNotSameAs(employees.get(1));
+    }
+
+    // Junit test for getEmployeeById through the lookup batcher
+    @DisplayName("Junit test for getEmployeeById through the lookup batcher")
+    @Test
+    public void givenBatcherEnabled_whenGetEmployeeById_thenLoadThroughBatcher(){
+        // given - precondition or setup
+        given(employeeCache.getById(1L)).willReturn(Optional.empty());
+        given(lookupBatcher.isEnabled()).willReturn(true);
+        given(lookupBatcher.load(1L)).willReturn(CompletableFuture.completedFuture(Optional.of(employeeView)));
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> queryEmployee = employeeService.getEmployeeById(1L);
+
+        // then - verify the output
+        assertThat(queryEmployee).isPresent();
+        verify(employeeRepository, never()).findViewById(anyLong());
+    }
+
+    // Junit test for conditional updateEmployee method with a stale version
+    @DisplayName("Junit test for conditional updateEmployee method with a stale version")
+    @Test
+    public void givenStaleVersion_whenUpdateEmployee_thenThrowsOptimisticLockingFailure(){
+        // given - precondition or setup 資料存在但version已被其他人更新
+        given(employeeRepository.updateByIdAndVersion(1L, 3L, employee.getFirstname(), employee.getLastname(), employee.getEmail()))
+                .willReturn(0);
+        given(employeeRepository.existsById(1L)).willReturn(true);
+
+        // when - action or the behavior that we are going test
+        Assertions.assertThrows(OptimisticLockingFailureException.class, ()->{
+            employeeService.updateEmployee(1L, employee, 3L);
+        });
+
+        // then - verify the output
+        verify(employeeCache, times(1)).evict(1L);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    // Junit test for conditional updateEmployee method with the current version
+    @DisplayName("Junit test for conditional updateEmployee method with the current version")
+    @Test
+    public void givenCurrentVersion_whenUpdateEmployee_thenReturnNextVersion(){
+        // given - precondition or setup
+        given(employeeRepository.updateByIdAndVersion(1L, 3L, employee.getFirstname(), employee.getLastname(), employee.getEmail()))
+                .willReturn(1);
+        given(employeeRepository.findViewById(1L)).willReturn(Optional.of(
+                new EmployeeView(1L, employee.getFirstname(), employee.getLastname(), employee.getEmail(), 4L)));
+
+        // when - action or the behavior that we are going test
+        Optional<Employee> updatedEmployee = employeeService.updateEmployee(1L, employee, 3L);
 
+        // then - verify the output 版本由資料庫讀回, 不是expectedVersion + 1
+        assertThat(updatedEmployee.get().getVersion()).isEqualTo(4L);
+        verify(employeeRepository, times(1)).findViewById(1L);
     }
 }
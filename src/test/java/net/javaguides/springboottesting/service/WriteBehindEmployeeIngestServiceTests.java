@@ -0,0 +1,289 @@
+package net.javaguides.springboottesting.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.javaguides.springboottesting.config.IngestProperties;
+import net.javaguides.springboottesting.dto.BatchItemResult;
+import net.javaguides.springboottesting.dto.BatchResult;
+import net.javaguides.springboottesting.dto.IngestStats;
+import net.javaguides.springboottesting.dto.IngestStatus;
+import net.javaguides.springboottesting.model.Employee;
+import net.javaguides.springboottesting.service.impl.WriteBehindEmployeeIngestService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindEmployeeIngestServiceTests {
+
+    @Mock
+    private EmployeeService employeeService;
+
+    @TempDir
+    Path journalDir;
+
+    private IngestProperties properties;
+
+    private WriteBehindEmployeeIngestService ingestService;
+
+    @BeforeEach
+    public void setup(){
+        properties = new IngestProperties();
+        properties.setJournalDir(journalDir);
+        properties.setFlushSize(2);
+        properties.setFlushInterval(Duration.ofMillis(10));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (ingestService != null) {
+            ingestService.destroy();
+        }
+    }
+
+    // Junit test for submit method
+    @DisplayName("Junit test for submit method")
+    @Test
+    public void givenValidEmployees_whenSubmit_thenAcknowledgeAndCommitInGroups() throws Exception {
+        // given - precondition or setup
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> createdAll(invocation.getArgument(0)));
+        ingestService = started();
+
+        // when - action or the behavior that we are going test
+        List<IngestStatus> acks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            acks.add(ingestService.submit(employee("ives" + i + "@gmail.com")));
+        }
+
+        // then - verify the output
+        assertThat(acks).extracting(IngestStatus::getState).containsOnly(IngestStatus.State.PENDING);
+        for (IngestStatus ack : acks) {
+            assertThat(awaitDone(ack.getTrackingId()).getState()).isEqualTo(IngestStatus.State.CREATED);
+        }
+        assertThat(ingestService.stats().getCreated()).isEqualTo(3);
+        assertThat(ingestService.stats().getQueued()).isZero();
+        assertThat(ingestService.stats().getJournalBytes()).isZero();
+    }
+
+    // Junit test for submit method (invalid employee)
+    @DisplayName("Junit test for submit method (invalid employee)")
+    @Test
+    public void givenEmployeeWithoutEmail_whenSubmit_thenFailWithoutQueueing() throws Exception {
+        // given - precondition or setup
+        ingestService = started();
+
+        // when - action or the behavior that we are going test
+        IngestStatus status = ingestService.submit(Employee.builder().firstname("Ives").lastname("He").build());
+
+        // then - verify the output
+        assertThat(status.getState()).isEqualTo(IngestStatus.State.FAILED);
+        assertThat(status.getError()).isEqualTo("email is required");
+        assertThat(ingestService.stats().getAccepted()).isZero();
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    // Junit test for journal replay after restart
+    @DisplayName("Junit test for journal replay after restart")
+    @Test
+    public void givenUncommittedCreatesInJournal_whenRestart_thenReplayAndCommit() throws Exception {
+        // given - precondition or setup 資料庫無法連線, 關閉前兩筆都未commit
+        given(employeeService.saveEmployees(anyList())).willThrow(new DataAccessResourceFailureException("database down"));
+        WriteBehindEmployeeIngestService crashed = started();
+        String first = crashed.submit(employee("ives@gmail.com")).getTrackingId();
+        String second = crashed.submit(employee("tony@gmail.com")).getTrackingId();
+        crashed.destroy();
+
+        // when - action or the behavior that we are going test
+        willAnswer(invocation -> createdAll(invocation.getArgument(0))).given(employeeService).saveEmployees(anyList());
+        ingestService = started();
+
+        // then - verify the output
+        assertThat(ingestService.stats().getReplayed()).isEqualTo(2);
+        assertThat(awaitDone(first).getState()).isEqualTo(IngestStatus.State.CREATED);
+        assertThat(awaitDone(second).getState()).isEqualTo(IngestStatus.State.CREATED);
+    }
+
+    private WriteBehindEmployeeIngestService started() throws Exception {
+        WriteBehindEmployeeIngestService service = new WriteBehindEmployeeIngestService(employeeService, new ObjectMapper(), properties);
+        service.start();
+        return service;
+    }
+
+    private IngestStatus awaitDone(String trackingId) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        IngestStatus status = ingestService.getStatus(trackingId).orElseThrow();
+        while (status.getState() == IngestStatus.State.PENDING && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            status = ingestService.getStatus(trackingId).orElseThrow();
+        }
+        return status;
+    }
+
+    private static BatchResult createdAll(List<Employee> employees){
+        List<BatchItemResult> items = new ArrayList<>();
+        for (int i = 0; i < employees.size(); i++) {
+            items.add(BatchItemResult.created(i, i + 1L, employees.get(i).getEmail()));
+        }
+        return BatchResult.of(items);
+    }
+
+    private static Employee employee(String email){
+        return Employee.builder()
+                .firstname("Ives")
+                .lastname("He")
+                .email(email)
+                .build();
+    }
+
+    // Junit test for a create that keeps failing on its own
+    @DisplayName("Junit test for a create that keeps failing on its own")
+    @Test
+    public void givenPoisonCreate_whenFlush_thenDeadLetterItAndCommitTheOthers() throws Exception {
+        // given - precondition or setup 含poison的批次整批失敗, 拆成單筆後只有poison失敗
+        properties.setMaxAttempts(2);
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> {
+            List<Employee> employees = invocation.getArgument(0);
+            if (employees.stream().anyMatch(employee -> employee.getEmail().startsWith("poison"))) {
+                throw new DataIntegrityViolationException("value too long for column");
+            }
+            return createdAll(employees);
+        });
+        ingestService = started();
+
+        // when - action or the behavior that we are going test
+        String first = ingestService.submit(employee("ives@gmail.com")).getTrackingId();
+        String poison = ingestService.submit(employee("poison@gmail.com")).getTrackingId();
+        String last = ingestService.submit(employee("tony@gmail.com")).getTrackingId();
+
+        // then - verify the output
+        assertThat(awaitDone(first).getState()).isEqualTo(IngestStatus.State.CREATED);
+        assertThat(awaitDone(last).getState()).isEqualTo(IngestStatus.State.CREATED);
+        IngestStatus deadLettered = awaitDone(poison);
+        assertThat(deadLettered.getState()).isEqualTo(IngestStatus.State.FAILED);
+        assertThat(deadLettered.getError()).startsWith("Gave up after 2 attempts");
+        assertThat(ingestService.stats().getDeadLettered()).isEqualTo(1);
+        assertThat(ingestService.stats().getQueued()).isZero();
+        assertThat(ingestService.stats().getJournalBytes()).isZero();
+        assertThat(Files.readString(journalDir.resolve("ingest.dead-letter"))).contains(poison, "poison@gmail.com");
+    }
+
+    // Junit test for journal replay of creates committed before the crash
+    @DisplayName("Junit test for journal replay of creates committed before the crash")
+    @Test
+    public void givenCommittedCreateInJournal_whenRestart_thenReportCreatedWithoutInsertingAgain() throws Exception {
+        // given - precondition or setup 模擬commit之後、checkpoint之前crash: journal內的記錄已存在於資料庫
+        given(employeeService.saveEmployees(anyList())).willThrow(new DataAccessResourceFailureException("database down"));
+        WriteBehindEmployeeIngestService crashed = started();
+        String trackingId = crashed.submit(employee("ives@gmail.com")).getTrackingId();
+        crashed.destroy();
+        clearInvocations(employeeService);
+        given(employeeService.getEmployeeByEmail("ives@gmail.com"))
+                .willReturn(Optional.of(employee("ives@gmail.com").toBuilder().id(7L).build()));
+
+        // when - action or the behavior that we are going test
+        ingestService = started();
+
+        // then - verify the output
+        IngestStatus status = awaitDone(trackingId);
+        assertThat(status.getState()).isEqualTo(IngestStatus.State.CREATED);
+        assertThat(status.getId()).isEqualTo(7L);
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    // Junit test for journal replay of a create whose email belongs to someone else
+    @DisplayName("Junit test for journal replay of a create whose email belongs to someone else")
+    @Test
+    public void givenReplayedCreateWithEmailOfAnotherEmployee_whenRestart_thenReportFailed() throws Exception {
+        // given - precondition or setup 資料庫內同email的是另一個人
+        given(employeeService.saveEmployees(anyList())).willThrow(new DataAccessResourceFailureException("database down"));
+        WriteBehindEmployeeIngestService crashed = started();
+        String trackingId = crashed.submit(employee("ives@gmail.com")).getTrackingId();
+        crashed.destroy();
+        clearInvocations(employeeService);
+        given(employeeService.getEmployeeByEmail("ives@gmail.com")).willReturn(Optional.of(Employee.builder()
+                .id(7L).firstname("Tony").lastname("Stark").email("ives@gmail.com").build()));
+
+        // when - action or the behavior that we are going test
+        ingestService = started();
+
+        // then - verify the output
+        IngestStatus status = awaitDone(trackingId);
+        assertThat(status.getState()).isEqualTo(IngestStatus.State.FAILED);
+        assertThat(status.getId()).isNull();
+        assertThat(status.getError()).isEqualTo("Employee already exist with given email:ives@gmail.com");
+        verify(employeeService, never()).saveEmployees(anyList());
+    }
+
+    // Junit test for concurrent submits sharing journal fsyncs
+    @DisplayName("Junit test for concurrent submits sharing journal fsyncs")
+    @Test
+    public void givenConcurrentSubmits_whenJournalSync_thenGroupCommitTheJournal() throws Exception {
+        // given - precondition or setup
+        int threads = 16;
+        int perThread = 200;
+        properties.setFlushSize(500);
+        properties.setJournalSync(true);
+        given(employeeService.saveEmployees(anyList())).willAnswer(invocation -> createdAll(invocation.getArgument(0)));
+        ingestService = started();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            submitters.add(executor.submit(() -> {
+                start.await();
+                List<String> trackingIds = new ArrayList<>(perThread);
+                for (int i = 0; i < perThread; i++) {
+                    trackingIds.add(ingestService.submit(employee("ives" + thread + "-" + i + "@gmail.com")).getTrackingId());
+                }
+                return trackingIds;
+            }));
+        }
+
+        // when - action or the behavior that we are going test
+        long begin = System.nanoTime();
+        start.countDown();
+        List<String> trackingIds = new ArrayList<>();
+        for (Future<List<String>> submitter : submitters) {
+            trackingIds.addAll(submitter.get(60, TimeUnit.SECONDS));
+        }
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        // then - verify the output
+        IngestStats stats = ingestService.stats();
+        System.out.printf("%d concurrent submits in %.1fms (%.0f/s), %d journal fsyncs%n", trackingIds.size(),
+                elapsedNanos / 1e6, trackingIds.size() / (elapsedNanos / 1e9), stats.getJournalSyncs());
+        assertThat(stats.getAccepted()).isEqualTo(threads * perThread);
+        assertThat(stats.getJournalSyncs()).isPositive().isLessThanOrEqualTo(stats.getAccepted());
+        for (String trackingId : trackingIds) {
+            assertThat(awaitDone(trackingId).getState()).isEqualTo(IngestStatus.State.CREATED);
+        }
+    }
+}